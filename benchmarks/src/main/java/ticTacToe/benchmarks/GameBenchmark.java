@@ -0,0 +1,59 @@
+package ticTacToe.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ticTacToe.Game;
+import ticTacToe.IllegalMoveException;
+
+/**
+ * The game engine: hashing, evaluating, expanding and moving, over all non-terminal positions with X to move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+	Positions positions;
+
+	@Setup
+	public void setup() {
+		positions = new Positions();
+	}
+
+	@Benchmark
+	public int gameHashCode() {
+		return positions.games[positions.next()].hashCode();
+	}
+
+	@Benchmark
+	public int evaluateGameState() {
+		return positions.games[positions.next()].evaluateGameState();
+	}
+
+	@Benchmark
+	public List<Game> getAllSuccessorGames() {
+		return positions.games[positions.next()].getAllSuccessorGames();
+	}
+
+	@Benchmark
+	public Game simulateMove() throws IllegalMoveException {
+		int i = positions.next();
+		return positions.games[i].simulateMove(positions.moves[i]);
+	}
+
+}
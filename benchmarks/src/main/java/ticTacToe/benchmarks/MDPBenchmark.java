@@ -0,0 +1,73 @@
+package ticTacToe.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ticTacToe.CompiledMDP;
+import ticTacToe.StateSpace;
+import ticTacToe.TTTMDP;
+import ticTacToe.TransitionProb;
+
+/**
+ * The transition function of the MDP, as lists of {@link TransitionProb}s and as a Bellman backup on the compiled model,
+ * for one (state, move) pair per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MDPBenchmark {
+
+	Positions positions;
+
+	TTTMDP mdp;
+
+	CompiledMDP model;
+
+	double[] rewards;
+
+	double[] values;
+
+	/**
+	 * the row of the compiled model of each position's move
+	 */
+	int[] rows;
+
+	@Setup
+	public void setup() {
+		positions = new Positions();
+		mdp = new TTTMDP();
+		model = mdp.compile();
+		rewards = mdp.rewards();
+		StateSpace space = StateSpace.getInstance();
+		values = new double[space.size()];
+		rows = new int[positions.games.length];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = model.row(space.id(positions.games[i]), 3 * positions.moves[i].x + positions.moves[i].y);
+	}
+
+	@Benchmark
+	public List<TransitionProb> generateTransitions() {
+		int i = positions.next();
+		return mdp.generateTransitions(positions.games[i], positions.moves[i]);
+	}
+
+	@Benchmark
+	public double compiledBackup() {
+		return model.backup(rows[positions.next()], rewards, 0.9, values);
+	}
+
+}
@@ -0,0 +1,83 @@
+package ticTacToe.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ticTacToe.DensePolicy;
+import ticTacToe.Game;
+import ticTacToe.Move;
+import ticTacToe.Policy;
+import ticTacToe.RetrogradeSolver;
+import ticTacToe.TTTMDP;
+
+/**
+ * {@link Policy#getMove(Game)} of the optimal policy, stored in each of the policy representations: the original
+ * {@code HashMap}, a {@link DensePolicy} (one byte or 4 bits per hash), a {@link ticTacToe.SymmetricPolicy} and a
+ * memory mapped policy file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PolicyBenchmark {
+
+	@Param({ "hashmap", "dense", "packed", "symmetric", "mapped" })
+	String kind;
+
+	Positions positions;
+
+	Policy policy;
+
+	File file;
+
+	@Setup
+	public void setup() throws IOException {
+		positions = new Positions();
+		RetrogradeSolver solver = new RetrogradeSolver(new TTTMDP(), 0.9, kind.equals("symmetric"));
+		solver.solve();
+		HashMap<Game, Move> moves = solver.getPolicyMap();
+
+		if (kind.equals("hashmap")) {
+			policy = new Policy(moves);
+		} else if (kind.equals("dense")) {
+			policy = new DensePolicy(moves, false);
+		} else if (kind.equals("packed")) {
+			policy = new DensePolicy(moves, true);
+		} else if (kind.equals("symmetric")) {
+			policy = solver.getPolicy();
+		} else {
+			file = File.createTempFile("policy", ".bin");
+			new Policy(moves).save(file.getPath());
+			policy = new Policy(file.getPath());
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (file != null)
+			file.delete();
+	}
+
+	@Benchmark
+	public Move getMove() {
+		return policy.getMove(positions.games[positions.next()]);
+	}
+
+}
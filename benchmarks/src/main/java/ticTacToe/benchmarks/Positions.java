@@ -0,0 +1,45 @@
+package ticTacToe.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ticTacToe.Game;
+import ticTacToe.Move;
+
+/**
+ * The positions the benchmarks cycle through: every valid game where it's X's turn and the game is not over, each with
+ * one of its legal moves.
+ */
+final class Positions {
+
+	final Game[] games;
+
+	final Move[] moves;
+
+	private int next = -1;
+
+	Positions() {
+		List<Game> ongoing = new ArrayList<Game>();
+		for (Game g : Game.generateAllValidGames('X'))
+			if (!g.isTerminal())
+				ongoing.add(g);
+
+		games = ongoing.toArray(new Game[0]);
+		moves = new Move[games.length];
+		for (int i = 0; i < games.length; i++) {
+			List<Move> legal = games[i].getPossibleMoves();
+			moves[i] = legal.get(i % legal.size());
+		}
+	}
+
+	/**
+	 * @return the index of the next position, wrapping around
+	 */
+	int next() {
+		if (++next == games.length)
+			next = 0;
+
+		return next;
+	}
+
+}
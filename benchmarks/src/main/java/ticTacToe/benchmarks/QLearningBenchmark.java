@@ -0,0 +1,81 @@
+package ticTacToe.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ticTacToe.DefensiveAgent;
+import ticTacToe.Policy;
+import ticTacToe.QLearningAgent;
+import ticTacToe.QLearningTrainer;
+import ticTacToe.QTable;
+import ticTacToe.ReplayBuffer;
+import ticTacToe.StateSpace;
+import ticTacToe.TTTMDP;
+
+/**
+ * Q-learning episodes per second: on state ids with a {@link QLearningTrainer} against the random opponent, with a
+ * full or symmetric q-table and with or without experience replay, and through the {@link ticTacToe.TTTEnvironment}
+ * against the defensive agent.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QLearningBenchmark {
+
+	static final int EPISODES = 1000;
+
+	@Param({ "full", "symmetric", "replay" })
+	String table;
+
+	QLearningTrainer trainer;
+
+	@Setup
+	public void setup() {
+		QTable q = new QTable(table.equals("symmetric"));
+		StateSpace space = StateSpace.getInstance();
+		for (int s : space.ids('X'))
+			for (int moves = space.legalMoves(s); moves != 0; moves &= moves - 1)
+				q.addQValue(s, Integer.numberOfTrailingZeros(moves), 0.0);
+
+		trainer = new QLearningTrainer(q, 0.1, 0.9, 0.1, new TTTMDP().rewards(), 42);
+		if (table.equals("replay"))
+			trainer.setReplay(new ReplayBuffer(10000), 8);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EPISODES)
+	public long trainer() {
+		trainer.train(EPISODES);
+		return trainer.getEpisodes();
+	}
+
+	/**
+	 * Training through {@link ticTacToe.TTTEnvironment}, which the agent does for opponents other than the random agent.
+	 */
+	@State(Scope.Thread)
+	public static class Environment {
+
+		@Benchmark
+		@OperationsPerInvocation(EPISODES)
+		public Policy defensiveOpponent() {
+			return new QLearningAgent(new DefensiveAgent(), 0.1, EPISODES, 0.9).getPolicy();
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+package ticTacToe.benchmarks;
+
+import ticTacToe.CompiledMDP;
+import ticTacToe.Game;
+import ticTacToe.ParallelQLearningTrainer;
+import ticTacToe.QTable;
+import ticTacToe.RetrogradeSolver;
+import ticTacToe.StateSpace;
+import ticTacToe.TTTMDP;
+
+/**
+ * The scaling and quality of {@link ParallelQLearningTrainer}: for 1 up to twice the number of available processors,
+ * how many episodes per second the workers play, and the quality of the learned greedy policy, its exact expected
+ * return from the empty board against the random opponent (see {@link RetrogradeSolver#evaluate(int[])}), next to
+ * that of the optimal policy. Not a JMH benchmark, since each thread count is one long training run; run it with
+ * {@code java -cp target/benchmarks.jar ticTacToe.benchmarks.QLearningScaling [episodes]}.
+ */
+public class QLearningScaling {
+
+	/**
+	 * @param args optionally, the number of episodes to train for at each thread count
+	 */
+	public static void main(String[] args) {
+		long numEpisodes = args.length > 0 ? Long.parseLong(args[0]) : 2000000;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		StateSpace space = StateSpace.getInstance();
+		TTTMDP mdp = new TTTMDP();
+		CompiledMDP model = mdp.compile();
+		RetrogradeSolver solver = new RetrogradeSolver(mdp, 0.9);
+		solver.solve();
+		int start = space.id(new Game().hashCode());
+		System.out.printf("optimal policy value: %.4f%n", solver.getValues().get(start));
+		System.out.println("threads  episodes/s  speedup  policy value");
+
+		double base = 0.0;
+		for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+			QTable qTable = newQTable(space);
+			ParallelQLearningTrainer trainer = new ParallelQLearningTrainer(qTable, 0.1, 0.9, 0.1, mdp.rewards(),
+					threads, threads);
+			trainer.train(numEpisodes);
+			double rate = trainer.getEpisodesPerSecond();
+			if (threads == 1)
+				base = rate;
+
+			double value = solver.evaluate(qTable.greedyRows(model)).get(start);
+			System.out.printf("%7d  %10.0f  %7.2f  %12.4f%n", threads, rate, rate / base, value);
+		}
+	}
+
+	/**
+	 * @return a q-table with the q-values of all moves of X set to 0
+	 */
+	static QTable newQTable(StateSpace space) {
+		QTable q = new QTable();
+		for (int s : space.ids('X'))
+			for (int moves = space.legalMoves(s); moves != 0; moves &= moves - 1)
+				q.addQValue(s, Integer.numberOfTrailingZeros(moves), 0.0);
+
+		return q;
+	}
+
+}
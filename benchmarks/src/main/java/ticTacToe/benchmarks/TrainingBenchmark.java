@@ -0,0 +1,57 @@
+package ticTacToe.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ticTacToe.Policy;
+import ticTacToe.PolicyIterationAgent;
+import ticTacToe.TrainingMode;
+import ticTacToe.ValueIterationAgent;
+
+/**
+ * A full train of the value iteration and policy iteration agents, from scratch to their policy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class ValueIterationMode {
+
+		/**
+		 * how the value iteration agent trains: {@code k} sweeps, in one retrograde pass, or {@code k} sweeps over the
+		 * canonical states only
+		 */
+		@Param({ "iterative", "retrograde", "symmetric" })
+		String mode;
+
+	}
+
+	@Benchmark
+	public Policy valueIteration(ValueIterationMode m) {
+		ValueIterationAgent agent = ValueIterationAgent.untrained(0.9);
+		agent.setTrainingMode(m.mode.equals("retrograde") ? TrainingMode.RETROGRADE : TrainingMode.ITERATIVE);
+		agent.setSymmetric(m.mode.equals("symmetric"));
+		agent.train();
+		return agent.getPolicy();
+	}
+
+	@Benchmark
+	public Policy policyIteration() {
+		return new PolicyIterationAgent(0.9).getPolicy();
+	}
+
+}
@@ -10,6 +10,12 @@ public class Agent {
 	
 	protected char name; //'X' or 'O'
 	
+	/**
+	 * the number of moves asked of this agent, counting towards the sampling of {@link FlightEvents.PolicyLookup} events.
+	 * Counted here rather than in the policy, which may be shared by agents on several threads.
+	 */
+	int lookups;
+	
 	/**
 	 * Name of the agent ('X' or 'O') is set when the agent joins the game
 	 * @param p
@@ -28,11 +34,30 @@ public class Agent {
 	}
 	/**
 	 * This is the method that uses the agent's policy to return a move, given a game.
+	 * One in {@link FlightEvents#SAMPLING} moves is looked up with {@link Policy#lookup(Game)}, for flight recordings.
 	 * @param g the game
 	 * @return a move according to the agent's policy
 	 */
 	public Move getMove(Game g)
 	{
+		if ((++lookups & FlightEvents.SAMPLE_MASK) != 0)
+			return policy.getMove(g);
+		
+		return policy.lookup(g);
+	}
+	
+	/**
+	 * Returns a move in any m,n,k-game, which is how a {@link GameRunner} asks for moves. A Tic Tac Toe {@link Game}
+	 * is played with {@link #getMove(Game)}, other boards with {@link Policy#getMove(MNKGame)}.
+	 * @param g the game
+	 * @return a move according to the agent's policy
+	 * @throws UnsupportedOperationException if the agent only plays Tic Tac Toe and {@code g} is another board
+	 */
+	public Move getMove(MNKGame g)
+	{
+		if (g instanceof Game)
+			return getMove((Game) g);
+		
 		return policy.getMove(g);
 	}
 	
@@ -58,9 +83,25 @@ public class Agent {
 	}
 	
 	
+	/**
+	 * Loads this agent's policy from the file {@code <name>.policy}, e.g. {@code X.policy}, see {@link #loadPolicyFromFile(String)}.
+	 * @return the loaded policy
+	 */
 	public Policy loadPolicyFromFile()
 	{
-		return null;
+		return loadPolicyFromFile(getName()+".policy");
+	}
+	
+	/**
+	 * Loads a policy written by {@link Policy#save(String)} and makes it this agent's policy, so that it plays without
+	 * training first.
+	 * @param file
+	 * @return the loaded policy
+	 */
+	public Policy loadPolicyFromFile(String file)
+	{
+		this.policy=new Policy(file);
+		return this.policy;
 	}
 	
 	
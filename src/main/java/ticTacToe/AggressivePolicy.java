@@ -1,7 +1,6 @@
 package ticTacToe;
 
 
-import java.util.List;
 import java.util.Random;
 /**
  * An agrgessive policy: if there is a winning move given a game state (Game object) then this policy finds it. Otherwise returns a
@@ -12,31 +11,28 @@ import java.util.Random;
  */
 public class AggressivePolicy extends Policy {
 	
+	Random r=new Random();
 	
 	public Move getMove(Game g) {
 		
+		if (g.getState()!=Game.ONGOING)
+			return null;
 		
-		List<Move> moves=g.getPossibleMoves();
+		char me=g.getWhoseTurn().getName();
+		int empty=g.emptyCells();
 		
-		for(Move m:moves)
+		for(int cells=empty; cells!=0; cells&=cells-1)
 		{
-			
-			Game resulting=null;
-			try{
-				resulting=g.simulateMove(m);
-			}
-			catch(IllegalMoveException e)
-			{
-				System.out.println(e.getMessage());
-				e.printStackTrace();
-			}
-			if (resulting.getState()==Game.X_WON||resulting.getState()==Game.O_WON)
-				return m;
+			int cell=Integer.numberOfTrailingZeros(cells);
+			if (g.completesLine(me, cell/3, cell%3))
+				return Move.of(me, cell);
 		}
 		
-		Random r=new Random();
+		//pick the n-th empty cell, n chosen uniformly
+		for(int n=r.nextInt(Integer.bitCount(empty));n>0;n--)
+			empty&=empty-1;
 		
-		return moves.get(r.nextInt(moves.size()));
+		return Move.of(me, Integer.numberOfTrailingZeros(empty));
 		
 	}
 
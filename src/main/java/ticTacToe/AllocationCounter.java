@@ -0,0 +1,53 @@
+package ticTacToe;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reads the number of bytes the current thread has allocated so far, through the HotSpot extension of the thread
+ * MXBean, {@code com.sun.management.ThreadMXBean}. The difference between two reads is what the thread allocated in
+ * between.
+ */
+final class AllocationCounter {
+
+	/**
+	 * the bean, null if this JVM can't count allocated bytes
+	 */
+	private static final com.sun.management.ThreadMXBean BEAN = bean();
+
+	private AllocationCounter() {
+	}
+
+	private static com.sun.management.ThreadMXBean bean() {
+		try {
+			java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (!(bean instanceof com.sun.management.ThreadMXBean))
+				return null;
+
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+			if (!sun.isThreadAllocatedMemorySupported())
+				return null;
+			if (!sun.isThreadAllocatedMemoryEnabled())
+				sun.setThreadAllocatedMemoryEnabled(true);
+
+			return sun;
+		} catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the bytes allocated by the current thread so far, or -1 if they can't be measured
+	 */
+	static long allocatedBytes() {
+		return BEAN == null ? -1 : BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return the bytes allocated since {@code start}, a value from {@link #allocatedBytes()}, or -1 if they can't be
+	 *         measured
+	 */
+	static long since(long start) {
+		return start < 0 ? -1 : allocatedBytes() - start;
+	}
+
+}
@@ -0,0 +1,265 @@
+package ticTacToe;
+
+/**
+ * The transition function of {@link TTTMDP} compiled into flat primitive arrays, in compressed sparse row (CSR) layout.
+ * It gives the same distributions as {@link TTTMDP#generateTransitions(Game, Move)} without creating any objects.
+ *
+ * There is one row per (state, action) pair where it's X's turn and the game is not over. The rows of state {@code s}
+ * are {@code stateRows[s]} to {@code stateRows[s+1]-1}, in increasing order of the action (cell) they stand for, and the
+ * transitions of row {@code r} are {@code rowStart[r]} to {@code rowStart[r+1]-1}. Each transition has a target state id,
+ * a probability and a reward index ({@link #WIN}, {@link #LOSE}, {@link #LIVING} or {@link #DRAW}). Rewards are looked
+ * up through the index in an array from {@link TTTMDP#rewards()}, so changing the rewards of an MDP doesn't need a new
+ * compiled model.
+ *
+ * The structure only depends on the rules of the game, so it is built once per JVM and shared, see
+ * {@link TTTMDP#compile()}. Like {@link TTTMDP}, it assumes the agent plays X.
+ *
+ * The symmetry-reduced model (see {@link TTTMDP#compile(boolean)}) only has rows for the canonical states of
+ * {@link Symmetry}, and its transitions target canonical states, so it can be solved on the canonical states alone,
+ * with roughly an eighth of the rows and transitions. Its values and moves carry over to the other states through
+ * {@link Symmetry}.
+ */
+public final class CompiledMDP {
+
+	/**
+	 * reward indices
+	 */
+	public static final int WIN = 0;
+	public static final int LOSE = 1;
+	public static final int LIVING = 2;
+	public static final int DRAW = 3;
+
+	/**
+	 * the number of reward indices, i.e. the length of a rewards array
+	 */
+	public static final int REWARDS = 4;
+
+	final StateSpace space;
+
+	/**
+	 * the symmetries the model is reduced by, null for the full model
+	 */
+	final Symmetry symmetry;
+
+	/**
+	 * size {@code space.size()+1}: the rows of state {@code s} are {@code stateRows[s]} to {@code stateRows[s+1]-1}
+	 */
+	final int[] stateRows;
+
+	/**
+	 * the cell played in each row
+	 */
+	final byte[] rowAction;
+
+	/**
+	 * size {@code rows+1}: the transitions of row {@code r} are {@code rowStart[r]} to {@code rowStart[r+1]-1}
+	 */
+	final int[] rowStart;
+
+	/**
+	 * the target state id of each transition
+	 */
+	final int[] target;
+
+	final double[] prob;
+
+	/**
+	 * the reward index of each transition
+	 */
+	final byte[] reward;
+
+	private CompiledMDP(StateSpace space, Symmetry symmetry) {
+		this.space = space;
+		this.symmetry = symmetry;
+		int n = space.size();
+
+		// first pass: count rows and transitions
+		int rows = 0;
+		int transitions = 0;
+		for (int s = 0; s < n; s++) {
+			if (!isDecision(s))
+				continue;
+
+			for (int legal = space.legalMoves[s]; legal != 0; legal &= legal - 1) {
+				int mid = space.successors[9 * s + Integer.numberOfTrailingZeros(legal)];
+				rows++;
+				transitions += space.isTerminal(mid) ? 1 : Integer.bitCount(space.legalMoves[mid]);
+			}
+		}
+
+		stateRows = new int[n + 1];
+		rowAction = new byte[rows];
+		rowStart = new int[rows + 1];
+		target = new int[transitions];
+		prob = new double[transitions];
+		reward = new byte[transitions];
+
+		// second pass: fill in
+		int r = 0;
+		int t = 0;
+		for (int s = 0; s < n; s++) {
+			stateRows[s] = r;
+			if (!isDecision(s))
+				continue;
+
+			for (int legal = space.legalMoves[s]; legal != 0; legal &= legal - 1) {
+				int cell = Integer.numberOfTrailingZeros(legal);
+				int mid = space.successors[9 * s + cell];
+				rowAction[r] = (byte) cell;
+				rowStart[r] = t;
+				r++;
+
+				// X has won or drawn with this move
+				if (space.isTerminal(mid)) {
+					target[t] = symmetry == null ? mid : symmetry.canonical[mid];
+					prob[t] = 1.0;
+					reward[t] = (byte) (space.result[mid] == Game.X_WON ? WIN : DRAW);
+					t++;
+					continue;
+				}
+
+				// otherwise equal chance that the opponent will move into the available places
+				int replies = space.legalMoves[mid];
+				double p = (double) 1 / Integer.bitCount(replies);
+				for (; replies != 0; replies &= replies - 1) {
+					int next = space.successors[9 * mid + Integer.numberOfTrailingZeros(replies)];
+					target[t] = symmetry == null ? next : symmetry.canonical[next];
+					prob[t] = p;
+					if (space.result[next] == Game.O_WON)
+						reward[t] = LOSE;
+					else if (space.result[next] == Game.DRAW)
+						reward[t] = DRAW;
+					else
+						reward[t] = LIVING;
+					t++;
+				}
+			}
+		}
+		stateRows[n] = r;
+		rowStart[rows] = t;
+	}
+
+	private boolean isDecision(int s) {
+		return space.toMove[s] == Game.X_TURN && !space.isTerminal(s) && (symmetry == null || symmetry.canonical[s] == s);
+	}
+
+	private static class Holder {
+		static final CompiledMDP INSTANCE = new CompiledMDP(StateSpace.getInstance(), null);
+	}
+
+	private static class ReducedHolder {
+		static final CompiledMDP INSTANCE = new CompiledMDP(StateSpace.getInstance(), Symmetry.getInstance());
+	}
+
+	/**
+	 * @return the rewards indexed by the reward indices, as {@link TTTMDP#rewards()} and
+	 *         {@link TTTEnvironment#rewards()} return them
+	 */
+	static double[] rewards(double win, double lose, double living, double draw) {
+		double[] rewards = new double[REWARDS];
+		rewards[WIN] = win;
+		rewards[LOSE] = lose;
+		rewards[LIVING] = living;
+		rewards[DRAW] = draw;
+		return rewards;
+	}
+
+	/**
+	 * @return the shared compiled model, building it on first use
+	 */
+	static CompiledMDP getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * @return the shared symmetry-reduced compiled model, building it on first use
+	 */
+	static CompiledMDP getReduced() {
+		return ReducedHolder.INSTANCE;
+	}
+
+	/**
+	 * @return true if this model only covers the canonical states of {@link Symmetry}
+	 */
+	public boolean isReduced() {
+		return symmetry != null;
+	}
+
+	/**
+	 * @return the total number of (state, action) rows
+	 */
+	public int rows() {
+		return rowAction.length;
+	}
+
+	/**
+	 * @return true if state {@code s} has actions, i.e. it's X's turn and the game is not over
+	 */
+	public boolean hasActions(int s) {
+		return stateRows[s] != stateRows[s + 1];
+	}
+
+	/**
+	 * @return the row of action {@code cell} in state {@code s}, or -1 if it's not a legal action
+	 */
+	public int row(int s, int cell) {
+		for (int r = stateRows[s]; r < stateRows[s + 1]; r++)
+			if (rowAction[r] == cell)
+				return r;
+
+		return -1;
+	}
+
+	/**
+	 * @return the cell played in row {@code r}
+	 */
+	public int action(int r) {
+		return rowAction[r];
+	}
+
+	/**
+	 * The expected discounted return of row {@code r}, i.e. the sum over its transitions of
+	 * {@code prob * (reward + discount * values[target])}.
+	 *
+	 * @param r       the row
+	 * @param rewards reward values by reward index, see {@link TTTMDP#rewards()}
+	 * @param values  state values by state id
+	 */
+	public double backup(int r, double[] rewards, double discount, double[] values) {
+		double sum = 0.0;
+		for (int t = rowStart[r]; t < rowStart[r + 1]; t++)
+			sum += prob[t] * (rewards[reward[t]] + discount * values[target[t]]);
+
+		return sum;
+	}
+
+	/**
+	 * @return the highest {@link #backup} over the rows of state {@code s}, negative infinity if {@code s} has no actions
+	 */
+	public double maxBackup(int s, double[] rewards, double discount, double[] values) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (int r = stateRows[s]; r < stateRows[s + 1]; r++)
+			max = Math.max(max, backup(r, rewards, discount, values));
+
+		return max;
+	}
+
+	/**
+	 * @return the row with the highest {@link #backup} in state {@code s}, the lowest cell on ties; -1 if {@code s}
+	 *         has no actions
+	 */
+	public int bestRow(int s, double[] rewards, double discount, double[] values) {
+		int best = -1;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int r = stateRows[s]; r < stateRows[s + 1]; r++) {
+			double v = backup(r, rewards, discount, values);
+			if (v > max) {
+				max = v;
+				best = r;
+			}
+		}
+
+		return best;
+	}
+
+}
@@ -1,7 +1,6 @@
 package ticTacToe;
 
 
-import java.util.List;
 import java.util.Random;
 /**
  * A defensive policy: if there is a move to block the opponent's X's or O's in a row, this policy finds it and returns it. Otherwise
@@ -11,30 +10,29 @@ import java.util.Random;
  */
 public class DefensivePolicy extends Policy {
 	
+	Random r=new Random();
+	
 public Move getMove(Game g) {
 		
+		if (g.getState()!=Game.ONGOING)
+			return null;
 		
-		List<Move> moves=g.getPossibleMovesByOpponent();
+		char me=g.getWhoseTurn().getName();
+		char opponent=(me=='X')?'O':'X';
+		int empty=g.emptyCells();
 		
-		for(Move m: moves)
+		for(int cells=empty; cells!=0; cells&=cells-1)
 		{
-			Game resulting=g.clone();
-			resulting.getBoard()[m.x][m.y]=m.who.getName();
-			resulting.evaluateGameState();
-			if (resulting.getState()==Game.X_WON||resulting.getState()==Game.O_WON)
-			{
-				Move newMove=new Move(m.who.getName()=='X'?'O':'X', m.x,m.y);
-				System.out.println("Playing defensive move");
-				return newMove;
-			}
+			int cell=Integer.numberOfTrailingZeros(cells);
+			if (g.completesLine(opponent, cell/3, cell%3))
+				return Move.of(me, cell);
 		}
 		
-		Random r=new Random();
-		System.out.println("Playing random move");
-		Move randomMove=moves.get(r.nextInt(moves.size()));
-		Move myMove=new Move(randomMove.who.getName()=='X'?'O':'X', randomMove.x,randomMove.y);
+		//pick the n-th empty cell, n chosen uniformly
+		for(int n=r.nextInt(Integer.bitCount(empty));n>0;n--)
+			empty&=empty-1;
 		
-		return myMove;
+		return Move.of(me, Integer.numberOfTrailingZeros(empty));
 		
 	}
 
@@ -0,0 +1,106 @@
+package ticTacToe;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A policy stored as an array indexed by {@link Game#hashCode()}, from 0 to {@link StateSpace#NUM_HASHES}-1, holding
+ * the cell {@code 3*x+y} of the move in each game. A lookup is one array read, and moves are returned as the shared
+ * instances of {@link Move#of(char, int)}, so {@link #getMove(Game)} doesn't create any objects.
+ *
+ * Cells take one byte per hash (59KB), or, in the packed variant, 4 bits per hash (30KB) at the cost of a shift and a
+ * mask per lookup. The move-less value is 0xFF, resp. 0xF.
+ */
+public class DensePolicy extends Policy {
+
+	final byte[] cells;
+
+	final boolean packed;
+
+	/**
+	 * An empty policy, without a move in any game.
+	 *
+	 * @param side   the player of the moves, 'X' or 'O'
+	 * @param packed whether to store 4 bits per hash rather than a byte
+	 */
+	public DensePolicy(char side, boolean packed) {
+		if (side != 'X' && side != 'O')
+			throw new IllegalArgumentException("Can only be a policy for X or for O");
+
+		this.side = side;
+		this.packed = packed;
+		this.cells = new byte[packed ? (StateSpace.NUM_HASHES + 1) / 2 : StateSpace.NUM_HASHES];
+		Arrays.fill(cells, NO_MOVE);
+	}
+
+	/**
+	 * A policy with the same moves as {@code moves}, which should all be by the same player.
+	 */
+	public DensePolicy(Map<Game, Move> moves, boolean packed) {
+		this(sideOf(moves), packed);
+		for (Entry<Game, Move> e : moves.entrySet()) {
+			Move m = e.getValue();
+			set(e.getKey().hashCode(), 3 * m.x + m.y);
+		}
+	}
+
+	public DensePolicy(Map<Game, Move> moves) {
+		this(moves, false);
+	}
+
+	private static char sideOf(Map<Game, Move> moves) {
+		char who = 0;
+		for (Move m : moves.values()) {
+			if (who == 0)
+				who = m.who.getName();
+			else if (m.who.getName() != who)
+				throw new IllegalArgumentException("The policy has moves by both X and O");
+		}
+
+		return who == 0 ? 'X' : who;
+	}
+
+	/**
+	 * Sets the move in the game with hash {@code hash}.
+	 *
+	 * @param cell the cell {@code 3*x+y} of the move, or -1 for no move
+	 */
+	public void set(int hash, int cell) {
+		if (cell < -1 || cell > 8)
+			throw new IllegalArgumentException("Invalid cell " + cell);
+
+		if (!packed) {
+			cells[hash] = (byte) cell;
+		} else {
+			int shift = (hash & 1) << 2;
+			cells[hash >> 1] = (byte) ((cells[hash >> 1] & ~(0xF << shift)) | ((cell & 0xF) << shift));
+		}
+	}
+
+	/**
+	 * @return the cell {@code 3*x+y} of the move in the game with hash {@code hash}, -1 if there is none
+	 */
+	public int cell(int hash) {
+		int c = packed ? (cells[hash >> 1] >> ((hash & 1) << 2)) & 0xF : cells[hash] & 0xFF;
+		return c > 8 ? -1 : c;
+	}
+
+	@Override
+	public Move getMove(Game g) {
+		int c = cell(g.hashCode());
+		return c < 0 ? null : Move.of(side, c);
+	}
+
+	@Override
+	char encode(byte[] body) {
+		for (int h = 0; h < body.length; h++) {
+			int c = cell(h);
+			if (c >= 0)
+				body[h] = (byte) c;
+		}
+
+		return side;
+	}
+
+}
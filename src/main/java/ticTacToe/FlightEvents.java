@@ -0,0 +1,139 @@
+package ticTacToe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Custom Java Flight Recorder events for the hot paths of games and training, so that a running process can be
+ * profiled with the standard JDK tools, e.g. {@code jcmd <pid> JFR.start} and JDK Mission Control. They are in the
+ * "Tic Tac Toe" category.
+ *
+ * The events cost next to nothing when no recording is running. Moves, policy lookups and Q-learning episodes happen
+ * millions of times per second, so only one in {@link #SAMPLING} of them is timed at all, and the others only pay for
+ * incrementing and testing a count: moves are counted per game, lookups per {@link Agent} rather than per policy,
+ * which may be shared by agents on several threads, and episodes per trainer. Timed events are then only recorded
+ * if they take longer than their threshold, which can be changed in the recording's settings, e.g. to 0 ms to see all
+ * the sampled ones. Transition generation and sweeps are much less frequent, and are not sampled.
+ *
+ * The events need the {@code jdk.jfr} API of JDK 11, or 8u262 and later.
+ */
+public final class FlightEvents {
+
+	/**
+	 * One in this many moves, policy lookups and episodes is timed. A power of two, 1024 unless set with the
+	 * {@code ticTacToe.jfr.sampling} system property, which is rounded down to a power of two.
+	 */
+	public static final int SAMPLING = Integer.highestOneBit(Math.max(1, Integer.getInteger("ticTacToe.jfr.sampling", 1024)));
+
+	/**
+	 * a count {@code n} is sampled if {@code (n & SAMPLE_MASK) == 0}
+	 */
+	static final int SAMPLE_MASK = SAMPLING - 1;
+
+	private FlightEvents() {
+	}
+
+	@Name("ticTacToe.MoveExecuted")
+	@Label("Move Execution")
+	@Description("A sampled move executed by MNKGame.executeMove")
+	@Category("Tic Tac Toe")
+	@Threshold("10 us")
+	@StackTrace(false)
+	public static class MoveExecuted extends Event {
+
+		@Label("Player")
+		char player;
+
+		@Label("Cell")
+		@Description("The cell n*x+y of the move")
+		int cell;
+
+		@Label("Key")
+		@Description("The key of the game after the move, its hash for Tic Tac Toe")
+		long key;
+
+	}
+
+	@Name("ticTacToe.TransitionsGenerated")
+	@Label("Transition Generation")
+	@Description("The transitions of a move generated by TTTMDP.generateTransitions")
+	@Category("Tic Tac Toe")
+	@Threshold("20 us")
+	public static class TransitionsGenerated extends Event {
+
+		@Label("Hash")
+		@Description("The hash of the game the move is made in")
+		int hash;
+
+		@Label("Cell")
+		int cell;
+
+		@Label("Transitions")
+		int transitions;
+
+	}
+
+	@Name("ticTacToe.Sweep")
+	@Label("Sweep")
+	@Description("A value iteration sweep, or a policy evaluation sweep of policy iteration")
+	@Category("Tic Tac Toe")
+	@Threshold("0 ms")
+	@StackTrace(false)
+	public static class Sweep extends Event {
+
+		@Label("Algorithm")
+		String algorithm;
+
+		@Label("Iteration")
+		int iteration;
+
+		@Label("States")
+		int states;
+
+		@Label("Residual")
+		@Description("The maximum Bellman residual of the sweep")
+		double residual;
+
+	}
+
+	@Name("ticTacToe.Episode")
+	@Label("Q-Learning Episode")
+	@Description("A sampled Q-learning episode")
+	@Category("Tic Tac Toe")
+	@Threshold("1 ms")
+	@StackTrace(false)
+	public static class Episode extends Event {
+
+		@Label("Episode")
+		long episode;
+
+		@Label("Epsilon")
+		double epsilon;
+
+	}
+
+	@Name("ticTacToe.PolicyLookup")
+	@Label("Policy Lookup")
+	@Description("A sampled lookup of a move in a policy")
+	@Category("Tic Tac Toe")
+	@Threshold("10 us")
+	@StackTrace(false)
+	public static class PolicyLookup extends Event {
+
+		@Label("Policy")
+		String policy;
+
+		@Label("Hash")
+		int hash;
+
+		@Label("Found")
+		boolean found;
+
+	}
+
+}
@@ -11,6 +11,11 @@ import java.util.List;
  * functionality for playing out a game between two agents, various other useful
  * methods.
  * 
+ * A Game is the 3x3, 3 in a row, case of {@link MNKGame}, which holds the board
+ * and plays the moves. On top of it, a Game has an {@code int} hash (see
+ * {@link #hashCode()}) that the {@link StateSpace}, the policies and the value
+ * functions index their arrays by.
+ * 
  * 
  * 
  * 
@@ -18,37 +23,30 @@ import java.util.List;
  *
  */
 
-public class Game {
-
-	/**
-	 * Constants representing different game states
-	 * 
-	 */
-	public static final int DRAW = 3;
-	public static final int X_WON = 1;
-	public static final int O_WON = 2;
-	public static final int ONGOING = 0;
+public class Game extends MNKGame {
 
 	/**
-	 * this integer represents the state of the game, and is set by
-	 * {@link #evaluateGameState()} after every move DO NOT CONFUSE THIS with an MDP
-	 * state.
+	 * {@code POW3[c]} is the weight of cell {@code c} in {@link #hashCode()}, i.e.
+	 * 3 to the power of {@code 9-c}.
 	 */
-	int state = 0;
-
-	char[][] board = new char[3][3];
+	static final int[] POW3 = { 19683, 6561, 2187, 729, 243, 81, 27, 9, 3 };
 
 	/**
-	 * the X agent
+	 * mask with all 9 cells set
 	 */
-	Agent x;
+	static final int FULL = 0x1FF;
 
 	/**
-	 * the O agent
+	 * The 8 winning lines as cell masks, in the order they are checked by
+	 * {@link #evaluateGameState()}: the three i's, the three j's, then the two
+	 * diagonals. These are the lines of {@link MNKRules#TIC_TAC_TOE}.
 	 */
-	Agent o;
+	static final int[] LINES = new int[MNKRules.TIC_TAC_TOE.lines()];
 
-	Agent whoseTurn;
+	static {
+		for (int i = 0; i < LINES.length; i++)
+			LINES[i] = (int) MNKRules.TIC_TAC_TOE.lines[i];
+	}
 
 	/**
 	 * new game with new X and O agents with null policies
@@ -78,9 +76,11 @@ public class Game {
 		if (whoseTurn != 'X' && whoseTurn != 'O')
 			throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
 		else if (whoseTurn == 'X')
-			this.whoseTurn = x;
+			this.toMove = X_TURN;
 		else
-			this.whoseTurn = o;
+			this.toMove = O_TURN;
+
+		initBoard();
 
 	}
 
@@ -92,18 +92,15 @@ public class Game {
 	 * @param whoseTurn
 	 */
 	public Game(Agent x, Agent o, Agent whoseTurn) {
-		this.x = x;
-		x.setName('X');
+		super(MNKRules.TIC_TAC_TOE, x, o, checkTurn(x, o, whoseTurn));
+
+	}
 
-		this.o = o;
-		o.setName('O');
+	private static Agent checkTurn(Agent x, Agent o, Agent whoseTurn) {
 		if (whoseTurn != x && whoseTurn != o)
 			throw new IllegalArgumentException("Agent with current turn is not one of the game agents");
 
-		this.whoseTurn = whoseTurn;
-
-		initBoard();
-
+		return whoseTurn;
 	}
 
 	/**
@@ -111,37 +108,31 @@ public class Game {
 	 * 
 	 */
 	public Game(Game g) {
-		this.x = g.x;
-		this.o = g.o;
-		this.whoseTurn = g.whoseTurn;
-		// WARNING: Currently Agents are not deep copied
-
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				this.board[i][j] = g.board[i][j];
+		super(g);
 
 	}
 
-	public void initBoard() {
-		// fill the board with e's (empty cells)
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				board[i][j] = ' ';
-
+	/**
+	 * @return the mask of empty cells, bit {@code 3*i+j} set if cell (i,j) is empty
+	 */
+	public int emptyCells() {
+		return (int) emptyMask();
 	}
 
-	public boolean isLegal(Move m) {
-		if (m.x < 0 || m.x > 2 || m.y < 0 || m.y > 2)
-			return false;
-
-		if (m.who.getName() != whoseTurn.getName()) {
-			return false;
-		}
-
-		if (board[m.x][m.y] != ' ')
-			return false;
-
-		return true;
+	/**
+	 * Tells us whether {@code who} would complete a line by playing at (x,y), as
+	 * {@link MNKGame#completesLine(char, int, int)} does, but checking the constant
+	 * {@link #LINES}: the aggressive and defensive agents call this for every empty
+	 * cell at every move, and the JIT compiles it to a handful of instructions.
+	 */
+	@Override
+	boolean completesLine(char who, int x, int y) {
+		int bits = (int) ((who == 'X') ? xBits : oBits) | (1 << (3 * x + y));
+		for (int line : LINES)
+			if ((bits & line) == line)
+				return true;
+
+		return false;
 	}
 
 	/**
@@ -152,20 +143,19 @@ public class Game {
 	 */
 	public List<Game> getAllSuccessorGames() {
 		List<Game> result = new ArrayList<Game>();
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (board[i][j] == ' ') {
-					Game newGame = null;
-					try {
-						newGame = this.simulateMove(whoseTurn.getName(), i, j);
-					} catch (IllegalMoveException e) {
-						System.out.println(e.getMessage());
-						e.printStackTrace();
-					}
-					// System.out.println("Adding:\n"+newGame);
-					result.add(newGame);
-				}
+		char who = getWhoseTurn().getName();
+		for (int empty = emptyCells(); empty != 0; empty &= empty - 1) {
+			int cell = Integer.numberOfTrailingZeros(empty);
+			Game newGame = null;
+			try {
+				newGame = this.simulateMove(who, cell / 3, cell % 3);
+			} catch (IllegalMoveException e) {
+				System.out.println(e.getMessage());
+				e.printStackTrace();
 			}
+			// System.out.println("Adding:\n"+newGame);
+			result.add(newGame);
+		}
 
 		return result;
 
@@ -181,226 +171,23 @@ public class Game {
 	 */
 	public static List<Game> generateAllValidGames(char xo) {
 		List<Game> result = new ArrayList<Game>();
-		// this is the number of possible game hashes (2222222222 in base 3): 59048 -
-		// not all are valid. Here we only return the valid ones.
-		for (int i = 0; i < 59048; i++) {
-			Game g = inverseHash(i);
-			if (g == null)
-				continue;
-
-			if (g.isValid()) {
-				// System.out.println("for:"+i);
-				// System.out.println("got:\n"+g);
-				// System.out.println("turn:"+g.whoseTurn.getName());
-				// System.out.println("--------");
-				g.evaluateGameState();
-				if (g.whoseTurn.getName() == xo || g.isTerminal())
-					result.add(g);
-			}
-
-		}
-
-		return result;
-	}
-
-	/**
-	 * returns a list of all available moves by the agent whose turn it is.
-	 * 
-	 * @return
-	 */
-	public List<Move> getPossibleMoves() {
-		List<Move> possibleMoves = new ArrayList<Move>();
-		// if it's not our turn then no moves possible.
-		if (getState() != ONGOING)
-			return possibleMoves;
-
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (getBoard()[i][j] == ' ')
-					possibleMoves.add(new Move(whoseTurn, i, j));
-			}
-
-		return possibleMoves;
-
-	}
-
-	/**
-	 * returns a list of all available moves by the agent whose turn it is NOT. Used
-	 * by the defensive agent.
-	 * 
-	 * @return
-	 */
-	public List<Move> getPossibleMovesByOpponent() {
-		List<Move> possibleMoves = new ArrayList<Move>();
-		// if it's not our turn then no moves possible.
-		if (getState() != ONGOING)
-			return possibleMoves;
-
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (getBoard()[i][j] == ' ')
-					possibleMoves.add(new Move((whoseTurn.getName() == 'X') ? 'O' : 'X', i, j));
-			}
-
-		return possibleMoves;
-
-	}
-
-	public char[][] getBoard() {
-		return board;
-	}
-
-	public String toString() {
-		String result = "\n";
-		for (int i = 0; i < 3; i++) {
-			result += "|";
-			for (int j = 0; j < 3; j++) {
-				result += board[i][j] + "|";
-
-			}
-			result += "\n";
-
-		}
-		// result+=this.whoseTurn+"'s turn";
+		// the valid states are enumerated once per JVM by the StateSpace, out of the
+		// 59048 possible game hashes (2222222222 in base 3).
+		StateSpace space = StateSpace.getInstance();
+		for (int id : space.ids(xo))
+			result.add(space.game(id));
 
 		return result;
 	}
 
 	/**
-	 * Evaluates the game, and sets its state to one of DRAW, ONGOING, X_WIN or
-	 * O_WIN
-	 * 
-	 * @return an integer representing the game state
-	 */
-	public int evaluateGameState() {
-
-		// checking columns
-		if (board[0][0] != ' ' && board[0][0] == board[0][1] && board[0][1] == board[0][2]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[1][0] != ' ' && board[1][0] == board[1][1] && board[1][1] == board[1][2]) {
-			if (board[1][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[2][0] != ' ' && board[2][0] == board[2][1] && board[2][1] == board[2][2]) {
-			if (board[2][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		// checking rows
-
-		if (board[0][0] != ' ' && board[0][0] == board[1][0] && board[1][0] == board[2][0]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[0][1] != ' ' && board[0][1] == board[1][1] && board[1][1] == board[2][1]) {
-			if (board[0][1] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-		if (board[0][2] != ' ' && board[0][2] == board[1][2] && board[1][2] == board[2][2]) {
-			if (board[0][2] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		// checking diagnols
-
-		if (board[0][0] != ' ' && board[0][0] == board[1][1] && board[1][1] == board[2][2]) {
-			if (board[0][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		if (board[2][0] != ' ' && board[2][0] == board[1][1] && board[1][1] == board[0][2]) {
-			if (board[2][0] == 'X')
-				this.state = X_WON;
-			else
-				this.state = O_WON;
-
-			return this.state;
-
-		}
-
-		boolean spacesLeft = false;
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				if (board[i][j] == ' ') {
-					spacesLeft = true;
-					break;
-
-				}
-			}
-
-		if (spacesLeft)
-			this.state = ONGOING;
-		else
-			this.state = DRAW;
-
-		return this.state;
-
-	}
-
-	private int count(char xo) {
-		int count = 0;
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++)
-				if (board[i][j] == xo)
-					count++;
-		return count;
-	}
-
-	/**
-	 * Tells us if this game is a valid game.
+	 * Evaluates the position given by the two occupancy masks against the 8
+	 * {@link #LINES}.
 	 * 
-	 * @return
+	 * @return one of DRAW, ONGOING, X_WON or O_WON
 	 */
-	public boolean isValid() {
-		int xs = count('X');
-		int os = count('O');
-		if (Math.abs(xs - os) > 1)
-			return false;
-
-		if (xs > os && this.whoseTurn.getName() == 'X')
-			return false;
-		else if (xs < os && this.whoseTurn.getName() == 'O')
-			return false;
-
-		return true;
-
+	static int evaluate(int xBits, int oBits) {
+		return MNKRules.TIC_TAC_TOE.evaluate(xBits, oBits);
 	}
 
 	/**
@@ -412,9 +199,9 @@ public class Game {
 	 * @param y   the y coordinate of the move
 	 * @return
 	 */
+	@Override
 	public Game simulateMove(char who, int x, int y) throws IllegalMoveException {
-		Move m = new Move(who, x, y);
-		return simulateMove(m);
+		return (Game) super.simulateMove(who, x, y);
 
 	}
 
@@ -425,114 +212,32 @@ public class Game {
 	 * @param m
 	 * @return the Game after the move has been executed.
 	 */
+	@Override
 	public Game simulateMove(Move m) throws IllegalMoveException {
-		if (whoseTurn == x && m.who.getName() != 'X')
-			throw new IllegalMoveException("it is not x's turn");
-
-		if (whoseTurn == o && m.who.getName() != 'O')
-			throw new IllegalMoveException("it is not o's turn");
-
-		if (board[m.x][m.y] != ' ')
-			throw new IllegalMoveException("Invalid move. The square is " + m);
-
-		Game copy = clone();
-		copy.board[m.x][m.y] = m.who.getName();
-		if (m.who.getName() == 'X')
-			copy.whoseTurn = copy.o;
-		else if (m.who.getName() == 'O')
-			copy.whoseTurn = copy.x;
-		else
-			throw new IllegalArgumentException();
-
-		copy.evaluateGameState();
-
-		return copy;
-
-	}
-
-	/**
-	 * Executes the move m. This will change the game.
-	 * 
-	 * @param m
-	 */
-	public void executeMove(Move m) throws IllegalMoveException {
-		if (whoseTurn == x && m.who.getName() != 'X')
-			throw new IllegalMoveException("it is not O's turn");
-
-		if (whoseTurn == o && m.who.getName() != 'O')
-			throw new IllegalMoveException("it is not X's turn");
-
-		if (board[m.x][m.y] != ' ')
-			throw new IllegalMoveException("Invalid move. The location (" + m.x + "," + m.y + ") is not empty");
-
-		board[m.x][m.y] = m.who.getName();
-		if (whoseTurn.getName() == 'X')
-			whoseTurn = o;
-		else if (m.who.getName() == 'O')
-			whoseTurn = x;
-		else
-			throw new IllegalArgumentException();
-
-		this.evaluateGameState();
-
-	}
-
-	/**
-	 * Executes move on the current game. Returns the resulting game without
-	 * changing the current one.
-	 * 
-	 * @param who the agent making move (X or O)
-	 * @param x   the x coordinate of the move (between 0 and 2 inclusive)
-	 * @param y   the y coordinate of the move (between 0 and 2 inclusive)
-	 */
-	public void executeMove(char who, int x, int y) throws IllegalMoveException {
-		Move m = new Move(who, x, y);
-		executeMove(m);
+		return simulateMove(m.who.getName(), m.x, m.y);
 
 	}
 
 	/**
-	 * 
-	 * /** This method will play out the game to the end using moves from the X and
+	 * This method will play out the game to the end using moves from the X and
 	 * O agents. Use this method to test your agents
 	 * 
-	 * Each step is pretty printed.
+	 * Each step is pretty printed, see {@link PrintingListener}. To play games
+	 * without printing, use a {@link GameRunner} directly.
+	 * 
+	 * @throws IllegalMoveException if an agent has no move or plays an illegal one
 	 */
 	public void playOut() throws IllegalMoveException {
-
-		while (this.state == ONGOING) {
-
-			Move m = this.whoseTurn.getMove(this);
-			// if (!(this.whoseTurn instanceof ValueIterationAgent))
-			// {
-			// System.out.println("----successors----");
-			// for(Game g: this.getAllSuccessorGames())
-			// {
-			//
-			// ValueIterationAgent a=(ValueIterationAgent)this.x;
-			// System.out.println("Game:"+g);
-			// System.out.println("Game Value="+a.valueFunction.get(g));
-			// }
-			// System.out.println("---------");
-			// }
-
-			System.out.println("Playing move: " + m);
-			executeMove(m);
-			System.out.println(this);
-
-		}
-		if (this.state == X_WON) {
-			System.out.println("X won!");
-		} else if (this.state == O_WON) {
-			System.out.println("O won!");
-		} else
-			System.out.println("It's a draw.");
+		GameRunner.Result r = new GameRunner(new PrintingListener()).run(this);
+		if (r.getError() != null)
+			throw r.getError();
 
 	}
 
 	/**
 	 * Deep copy
 	 */
+	@Override
 	public Game clone() {
 		return new Game(this);
 	}
@@ -544,38 +249,18 @@ public class Game {
 	 * 10 digits instead of 9 because we used the last, 10th one to encode whose
 	 * turn it is.
 	 * 
-	 * The returned value is essentially that number converted to base 10.
+	 * The returned value is essentially that number converted to base 10, i.e. the
+	 * {@link #key()} of the game. It is not computed here but kept up to date by
+	 * every move, which adds the digit of the cell played times its power of 3.
 	 * 
 	 * You can use this method to store (e.g. write to file) your value functions or
 	 * policies.
 	 * 
 	 * @return an integer representation of the game
 	 */
+	@Override
 	public int hashCode() {
-		// ' ' ->0
-		// 'X' ->1
-		// 'O' ->2
-		String s = "";
-		for (int i = 0; i < 3; i++)
-			for (int j = 0; j < 3; j++) {
-				switch (board[i][j]) {
-				case 'X':
-					s += "1";
-					break;
-				case 'O':
-					s += "2";
-					break;
-				case ' ':
-					s += "0";
-					break;
-				}
-
-			}
-		// also encode whose turn it is. Either 1 or 2 (x or o)
-
-		s += (whoseTurn == x) ? "1" : "2";
-
-		return Integer.parseInt(s, 3);
+		return (int) key;
 
 	}
 
@@ -587,72 +272,40 @@ public class Game {
 	 * You can use this method to read your policy or value functions from file.
 	 * 
 	 * @param hash
-	 * @return the Game corresponding to the hash
+	 * @return the Game corresponding to the hash, or null if the hash does not
+	 *         encode whose turn it is.
 	 */
 	public static Game inverseHash(int hash) {
+		if (hash < 0 || hash > 59048)
+			throw new IllegalArgumentException("Not a game hash: " + hash);
 
-		Game g = new Game();
-
-		String s1 = Integer.toString(hash, 3);
-
-		if (s1.charAt(s1.length() - 1) == '0')
+		// the last base 3 digit is whose turn it is
+		int turn = hash % 3;
+		if (turn == 0)
 			return null;
 
-		// add leading 0's
-		String s = new String(s1);
-
-		for (int i = 0; i < 10 - s1.length(); i++) {
-			s = "0" + s;
-		}
-		// System.out.println("Intermediate string:"+s);
-		// set whose turn
-		if (s.charAt(s.length() - 1) == '1')
-			g.whoseTurn = g.x;
-		else if (s.charAt(s.length() - 1) == '2')
-			g.whoseTurn = g.o;
-
-		for (int l = s.length() - 2; l >= 0; l--) {
-			int i = (int) l / 3;
-			int j = (int) l % 3;
-			switch (s.charAt(l)) {
-			case '0':
-				g.board[i][j] = ' ';
-				break;
-			case '1':
-				g.board[i][j] = 'X';
+		Game g = new Game();
+		g.toMove = (turn == 1) ? X_TURN : O_TURN;
+		g.key = hash;
+
+		int digits = hash / 3;
+		for (int cell = 8; cell >= 0; cell--, digits /= 3) {
+			switch (digits % 3) {
+			case 1:
+				g.xBits |= 1 << cell;
 				break;
-			case '2':
-				g.board[i][j] = 'O';
+			case 2:
+				g.oBits |= 1 << cell;
 				break;
-			default:
-				throw new IllegalStateException("this shouldn't happen!");
-
 			}
 		}
+		g.zobrist = g.rules.zobrist(g.xBits, g.oBits, g.toMove);
 
 		return g;
 	}
 
-	public boolean equals(Object other) {
-		if (other == null)
-			return false;
-		else if (!(other instanceof Game))
-			return false;
-
-		return this.hashCode() == other.hashCode();
-	}
-
-	public int getState() {
-		return this.state;
-	}
-
-	public boolean isTerminal() {
-
-		return this.state != ONGOING;
-	}
-
-	public static final String help = " -h this menu" + "\n -x the X agent: -x <pi, vi, random, agg, def, human>"
-			+ "\n -o the O agent: -o <random, agg, def, human>"
+	public static final String help = " -h this menu" + "\n -x the X agent: -x <pi, vi, ql, minimax, mcts, random, agg, def, human>"
+			+ "\n -o the O agent: -o <ql, minimax, mcts, random, agg, def, human>"
 			+ "\n -s the agent that starts the game (x or o): -s <x or o>";
 
 	// public static void main(String args[]) throws IllegalMoveException
@@ -709,7 +362,7 @@ public class Game {
 			case "-x":
 				next = iter.next();
 				if (next == null || next.startsWith("-")) {
-					System.out.println("-x should be followed by the agent name, vi, pi, random, agg, def, or human");
+					System.out.println("-x should be followed by the agent name, vi, pi, ql, minimax, mcts, random, agg, def, or human");
 					return;
 				}
 				if (next.equals("vi")) {
@@ -734,8 +387,14 @@ public class Game {
 				} else if (next.equals("ql")) {
 					System.out.println("X is q learning agent.");
 					x = new QLearningAgent();
+				} else if (next.equals("minimax")) {
+					System.out.println("X is minimax agent.");
+					x = new MinimaxAgent();
+				} else if (next.equals("mcts")) {
+					System.out.println("X is mcts agent.");
+					x = new MCTSAgent();
 				} else {
-					System.out.println("-x should be followed by the agent type: vi, pi, ql, random or human");
+					System.out.println("-x should be followed by the agent type: vi, pi, ql, minimax, mcts, random or human");
 					return;
 
 				}
@@ -770,6 +429,12 @@ public class Game {
 				} else if (next.equals("ql")) {
 					System.out.println("O is q learning agent.");
 					o = new QLearningAgent();
+				} else if (next.equals("minimax")) {
+					System.out.println("O is minimax agent.");
+					o = new MinimaxAgent();
+				} else if (next.equals("mcts")) {
+					System.out.println("O is mcts agent.");
+					o = new MCTSAgent();
 				} else {
 					System.out.println("Error: -x should be followed by the agent type: vi, pi, random or human");
 					return;
@@ -0,0 +1,40 @@
+package ticTacToe;
+
+/**
+ * Gets notified of the progress of a game played by a {@link GameRunner}. All methods do nothing by default, so a
+ * listener only implements those it needs; {@link #NONE} is the listener of a runner that doesn't report anything.
+ */
+public interface GameListener {
+
+	/**
+	 * a listener that does nothing
+	 */
+	GameListener NONE = new GameListener() {
+	};
+
+	/**
+	 * Called before the first move.
+	 */
+	default void started(MNKGame g) {
+	}
+
+	/**
+	 * Called before each move is played, with the move the agent chose, which may be null or illegal, in which case
+	 * the game is forfeited rather than {@link #moved(MNKGame, Move)}.
+	 */
+	default void moving(MNKGame g, Move m) {
+	}
+
+	/**
+	 * Called after each move, with {@code g} the game after {@code m} was played.
+	 */
+	default void moved(MNKGame g, Move m) {
+	}
+
+	/**
+	 * Called when the game is over, or was forfeited, see {@link GameRunner.Result}.
+	 */
+	default void ended(MNKGame g, GameRunner.Result result) {
+	}
+
+}
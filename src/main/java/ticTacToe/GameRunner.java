@@ -0,0 +1,176 @@
+package ticTacToe;
+
+/**
+ * Plays games to the end with moves from the X and O agents, reporting the progress to a {@link GameListener}. With
+ * the default listener, {@link GameListener#NONE}, nothing is printed and the loop itself doesn't create any objects:
+ * the outcome is written to a {@link Result} owned by the runner, and the moves, if recorded, are packed into a
+ * {@code long}. Whether a whole game is allocation free then only depends on the agents' policies.
+ *
+ * Games can be Tic Tac Toe {@link Game}s or any other {@link MNKGame}, whose agents are asked for moves with
+ * {@link Agent#getMove(MNKGame)}, so agents that play on any board, such as {@link MinimaxAgent}, can play them.
+ *
+ * A runner is not thread safe; use one per thread.
+ */
+public class GameRunner {
+
+	/**
+	 * outcomes besides those of {@link MNKGame#getState()}, when X, resp. O, had no move or played an illegal move
+	 */
+	public static final int FORFEIT_X = -1;
+	public static final int FORFEIT_O = -2;
+
+	final GameListener listener;
+
+	/**
+	 * whether to record the moves of each game in {@link Result#moves}, which holds up to 16 moves
+	 */
+	boolean recordMoves = false;
+
+	final Result result = new Result();
+
+	/**
+	 * A runner that doesn't report anything.
+	 */
+	public GameRunner() {
+		this(GameListener.NONE);
+	}
+
+	public GameRunner(GameListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @param recordMoves whether to record the moves of each game, which is only possible on boards of up to 16 cells
+	 */
+	public void setRecordMoves(boolean recordMoves) {
+		this.recordMoves = recordMoves;
+	}
+
+	/**
+	 * Plays {@code g} to the end from its current state, asking the agent whose turn it is for each move.
+	 *
+	 * A missing (null) or illegal move ends the game as a forfeit by the side to move, with the
+	 * {@link IllegalMoveException} in {@link Result#getError()}.
+	 *
+	 * @return the result, which is overwritten by the next call to this method
+	 * @throws IllegalStateException if moves are recorded and the board has more than 16 cells
+	 */
+	public Result run(MNKGame g) {
+		if (recordMoves && g.rules.cells > 16)
+			throw new IllegalStateException("Can't record the moves of a game of " + g.rules.cells + " cells");
+
+		Result r = result;
+		r.outcome = MNKGame.ONGOING;
+		r.plies = 0;
+		r.moves = 0;
+		r.error = null;
+
+		listener.started(g);
+		while (g.state == MNKGame.ONGOING) {
+			Move m = g.getWhoseTurn().getMove(g);
+			listener.moving(g, m);
+			try {
+				if (m == null)
+					throw new IllegalMoveException("No move by " + g.getWhoseTurn().getName());
+				g.executeMove(m);
+			} catch (IllegalMoveException e) {
+				r.outcome = g.toMove == MNKGame.X_TURN ? FORFEIT_X : FORFEIT_O;
+				r.error = e;
+				listener.ended(g, r);
+				return r;
+			}
+
+			if (recordMoves)
+				r.moves |= (long) g.rules.cell(m.x, m.y) << (4 * r.plies);
+			r.plies++;
+			listener.moved(g, m);
+		}
+
+		r.outcome = g.state;
+		listener.ended(g, r);
+		return r;
+	}
+
+	/**
+	 * The result of a game played by a {@link GameRunner}.
+	 */
+	public static class Result {
+
+		/**
+		 * {@link MNKGame#X_WON}, {@link MNKGame#O_WON}, {@link MNKGame#DRAW}, {@link GameRunner#FORFEIT_X} or
+		 * {@link GameRunner#FORFEIT_O}
+		 */
+		int outcome;
+
+		/**
+		 * the number of moves played
+		 */
+		int plies;
+
+		/**
+		 * the cells of the moves played, if recorded, 4 bits per move: move {@code k} is
+		 * {@code (moves >>> 4*k) & 0xF}
+		 */
+		long moves;
+
+		/**
+		 * the illegal move of a forfeited game, null otherwise
+		 */
+		IllegalMoveException error;
+
+		public int getOutcome() {
+			return outcome;
+		}
+
+		public boolean isForfeit() {
+			return outcome == FORFEIT_X || outcome == FORFEIT_O;
+		}
+
+		/**
+		 * @return 'X' or 'O' for the side that won, including by forfeit of the other side, or ' ' for a draw
+		 */
+		public char getWinner() {
+			if (outcome == MNKGame.X_WON || outcome == FORFEIT_O)
+				return 'X';
+			if (outcome == MNKGame.O_WON || outcome == FORFEIT_X)
+				return 'O';
+
+			return ' ';
+		}
+
+		public int getPlies() {
+			return plies;
+		}
+
+		/**
+		 * @return the packed cells of the moves, see {@link #moves}. 0 unless moves were recorded.
+		 */
+		public long getMoves() {
+			return moves;
+		}
+
+		/**
+		 * @return the cell {@code n*x+y} of move {@code k}, if moves were recorded
+		 */
+		public int getMove(int k) {
+			if (k < 0 || k >= plies)
+				throw new IndexOutOfBoundsException("No move " + k + " in a game of " + plies + " moves");
+
+			return (int) (moves >>> (4 * k)) & 0xF;
+		}
+
+		public IllegalMoveException getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(isForfeit() ? "forfeit, " : "").append("winner '").append(getWinner()).append("' after ")
+					.append(plies).append(" moves");
+			return sb.toString();
+		}
+
+	}
+
+}
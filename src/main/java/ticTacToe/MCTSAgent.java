@@ -0,0 +1,43 @@
+package ticTacToe;
+
+/**
+ * An agent that plays by Monte Carlo tree search, see {@link MonteCarloTreeSearch}. It needs no training, and uses all
+ * cores by default.
+ */
+public class MCTSAgent extends Agent {
+
+	/**
+	 * the default number of playouts of a move, plenty for Tic Tac Toe
+	 */
+	public static final long DEFAULT_PLAYOUTS = 20000;
+
+	/**
+	 * the default number of nodes of the trees
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 20;
+
+	/**
+	 * An agent searching {@link #DEFAULT_PLAYOUTS} playouts per move on one shared tree, on all cores.
+	 */
+	public MCTSAgent() {
+		this(DEFAULT_PLAYOUTS, 0, Runtime.getRuntime().availableProcessors(), true);
+	}
+
+	/**
+	 * @param playouts     the number of playouts of a move, 0 for no limit
+	 * @param millis       the time budget of a move, in ms, 0 for no limit
+	 * @param threads      the number of threads
+	 * @param treeParallel whether the threads share one tree, rather than growing one each
+	 */
+	public MCTSAgent(long playouts, long millis, int threads, boolean treeParallel) {
+		super(new MCTSPolicy(playouts, millis, threads, treeParallel, DEFAULT_CAPACITY));
+	}
+
+	/**
+	 * @return the search of this agent, for its statistics
+	 */
+	public MonteCarloTreeSearch getSearch() {
+		return ((MCTSPolicy) policy).getSearch();
+	}
+
+}
@@ -0,0 +1,48 @@
+package ticTacToe;
+
+/**
+ * A policy that searches for its moves with a {@link MonteCarloTreeSearch}, so it needs no training. It plays on any
+ * board, see {@link #getMove(MNKGame)}, and is the agent to use where {@link ValueIterationAgent value iteration} and
+ * {@link MinimaxAgent exhaustive search} are out of reach.
+ *
+ * The search is not thread safe, so a policy should only be used by one agent.
+ */
+public class MCTSPolicy extends Policy {
+
+	final MonteCarloTreeSearch search;
+
+	/**
+	 * @param playouts     the number of playouts of a move, 0 for no limit
+	 * @param millis       the time budget of a move, in ms, 0 for no limit
+	 * @param threads      the number of threads
+	 * @param treeParallel whether the threads share one tree, rather than growing one each
+	 * @param capacity     the number of nodes of all trees together
+	 */
+	public MCTSPolicy(long playouts, long millis, int threads, boolean treeParallel, int capacity) {
+		this.search = new MonteCarloTreeSearch(playouts, millis, threads, treeParallel, capacity);
+	}
+
+	@Override
+	public Move getMove(Game g) {
+		int cell = search.search(g);
+		return cell < 0 ? null : Move.of(g.getWhoseTurn().getName(), cell);
+	}
+
+	/**
+	 * @return the move found in {@code g}, on any board, null if the game is over
+	 */
+	@Override
+	public Move getMove(MNKGame g) {
+		int cell = search.search(g);
+		if (cell < 0)
+			return null;
+
+		int n = g.getRules().getColumns();
+		return new Move(g.toMove == MNKGame.X_TURN ? 'X' : 'O', cell / n, cell % n);
+	}
+
+	public MonteCarloTreeSearch getSearch() {
+		return search;
+	}
+
+}
@@ -0,0 +1,511 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A game of an m,n,k-game (see {@link MNKRules}) between an X and an O agent: the board, whose turn it is and the
+ * state of the game, with the moves that change them. {@link Game} is the 3,3,3 specialization used by the agents of
+ * this project; this class plays the same way on any board of up to 64 cells, e.g. 4x4 or 5x5 with 4 in a row.
+ *
+ * The board is stored as two {@code long} occupancy masks, one for X and one for O, with bit {@code n*x+y} for cell
+ * (x,y). A move only checks the precomputed lines through the cell played, see {@link MNKRules#linesThrough}.
+ *
+ * The game also keeps its {@link #key()} up to date with every move: the board as a number in base 3, which
+ * identifies the game on boards of up to {@link MNKRules#MAX_KEYED_CELLS} cells.
+ */
+public class MNKGame {
+
+	/**
+	 * Constants representing different game states
+	 *
+	 */
+	public static final int DRAW = 3;
+	public static final int X_WON = 1;
+	public static final int O_WON = 2;
+	public static final int ONGOING = 0;
+
+	static final int X_TURN = 0;
+	static final int O_TURN = 1;
+
+	final MNKRules rules;
+
+	/**
+	 * this integer represents the state of the game, and is set after every move
+	 * DO NOT CONFUSE THIS with an MDP state.
+	 */
+	int state = 0;
+
+	/**
+	 * The occupancy masks of X and O: bit {@code n*x+y} is set if the player has a
+	 * piece on cell (x,y).
+	 */
+	long xBits;
+
+	long oBits;
+
+	/**
+	 * The side to move: {@link #X_TURN} or {@link #O_TURN}
+	 */
+	int toMove;
+
+	/**
+	 * The value returned by {@link #key()}. It is kept up to date by every method
+	 * that changes the board or the side to move.
+	 */
+	long key;
+
+	/**
+	 * The value returned by {@link #zobrist()}, also kept up to date by every
+	 * change.
+	 */
+	long zobrist;
+
+	/**
+	 * the number of moves executed on this game, counting towards the sampling of
+	 * {@link FlightEvents.MoveExecuted} events
+	 */
+	int executed;
+
+	/**
+	 * the X agent
+	 */
+	Agent x;
+
+	/**
+	 * the O agent
+	 */
+	Agent o;
+
+	/**
+	 * A new game on an empty board, with new X and O agents with null policies,
+	 * where X plays first.
+	 */
+	public MNKGame(MNKRules rules) {
+		this(rules, new Agent(), new Agent(), null);
+	}
+
+	/**
+	 * A new game on an empty board with X and O agents where it's whoseTurn's turn
+	 * to play.
+	 *
+	 * @param rules
+	 * @param x
+	 * @param o
+	 * @param whoseTurn x or o, or null for x
+	 */
+	public MNKGame(MNKRules rules, Agent x, Agent o, Agent whoseTurn) {
+		this.rules = rules;
+		this.x = x;
+		x.setName('X');
+
+		this.o = o;
+		o.setName('O');
+		if (whoseTurn != null && whoseTurn != x && whoseTurn != o)
+			throw new IllegalArgumentException("Agent with current turn is not one of the game agents");
+
+		this.toMove = (whoseTurn == o) ? O_TURN : X_TURN;
+
+		initBoard();
+	}
+
+	/**
+	 * To deep copy
+	 *
+	 */
+	public MNKGame(MNKGame g) {
+		this.rules = g.rules;
+		this.x = g.x;
+		this.o = g.o;
+		this.toMove = g.toMove;
+		// WARNING: Currently Agents are not deep copied
+
+		this.xBits = g.xBits;
+		this.oBits = g.oBits;
+		this.state = g.state;
+		this.key = g.key;
+		this.zobrist = g.zobrist;
+	}
+
+	public void initBoard() {
+		// empty the board
+		xBits = 0;
+		oBits = 0;
+		key = toMove + 1;
+		zobrist = toMove == O_TURN ? rules.zobristTurn : 0L;
+	}
+
+	/**
+	 * Empties the board and gives the turn to X, so the game can be played again
+	 * with the same agents.
+	 */
+	void reset() {
+		toMove = X_TURN;
+		state = ONGOING;
+		initBoard();
+	}
+
+	public MNKRules getRules() {
+		return rules;
+	}
+
+	/**
+	 * @return the agent whose turn it is
+	 */
+	public Agent getWhoseTurn() {
+		return (toMove == X_TURN) ? x : o;
+	}
+
+	/**
+	 * @return the mask of empty cells, bit {@code n*x+y} set if cell (x,y) is
+	 *         empty
+	 */
+	public long emptyMask() {
+		return ~(xBits | oBits) & rules.full;
+	}
+
+	public boolean isLegal(Move m) {
+		if (!rules.contains(m.x, m.y))
+			return false;
+
+		if (m.who.getName() != getWhoseTurn().getName())
+			return false;
+
+		return ((xBits | oBits) & (1L << rules.cell(m.x, m.y))) == 0;
+	}
+
+	/**
+	 * returns a list of all available moves by the agent whose turn it is.
+	 *
+	 * @return
+	 */
+	public List<Move> getPossibleMoves() {
+		List<Move> possibleMoves = new ArrayList<Move>();
+		// if the game is over then no moves possible.
+		if (getState() != ONGOING)
+			return possibleMoves;
+
+		Agent who = getWhoseTurn();
+		for (long empty = emptyMask(); empty != 0; empty &= empty - 1) {
+			int cell = Long.numberOfTrailingZeros(empty);
+			possibleMoves.add(new Move(who, cell / rules.n, cell % rules.n));
+		}
+
+		return possibleMoves;
+	}
+
+	/**
+	 * returns a list of all available moves by the agent whose turn it is NOT. Used
+	 * by the defensive agent.
+	 *
+	 * @return
+	 */
+	public List<Move> getPossibleMovesByOpponent() {
+		List<Move> possibleMoves = new ArrayList<Move>();
+		// if the game is over then no moves possible.
+		if (getState() != ONGOING)
+			return possibleMoves;
+
+		char opponent = (toMove == X_TURN) ? 'O' : 'X';
+		for (long empty = emptyMask(); empty != 0; empty &= empty - 1) {
+			int cell = Long.numberOfTrailingZeros(empty);
+			possibleMoves.add(new Move(opponent, cell / rules.n, cell % rules.n));
+		}
+
+		return possibleMoves;
+	}
+
+	/**
+	 * Returns the board as an m×n array of 'X', 'O' and ' ' characters. The array
+	 * is built from the underlying bitboards on every call, so writing to it does
+	 * not change the game.
+	 *
+	 * @return a copy of the board
+	 */
+	public char[][] getBoard() {
+		char[][] board = new char[rules.m][rules.n];
+		for (int i = 0; i < rules.m; i++)
+			for (int j = 0; j < rules.n; j++)
+				board[i][j] = cellAt(rules.cell(i, j));
+
+		return board;
+	}
+
+	/**
+	 * @param cell the cell number {@code n*i+j}
+	 * @return 'X', 'O' or ' '
+	 */
+	char cellAt(int cell) {
+		long bit = 1L << cell;
+		if ((xBits & bit) != 0)
+			return 'X';
+		else if ((oBits & bit) != 0)
+			return 'O';
+
+		return ' ';
+	}
+
+	public String toString() {
+		StringBuilder result = new StringBuilder("\n");
+		for (int i = 0; i < rules.m; i++) {
+			result.append('|');
+			for (int j = 0; j < rules.n; j++)
+				result.append(cellAt(rules.cell(i, j))).append('|');
+
+			result.append('\n');
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * Evaluates the game against all the lines of the board, and sets its state to
+	 * one of DRAW, ONGOING, X_WIN or O_WIN. Moves keep the state up to date, so this
+	 * is only needed for boards set up otherwise.
+	 *
+	 * @return an integer representing the game state
+	 */
+	public int evaluateGameState() {
+		this.state = rules.evaluate(xBits, oBits);
+		return this.state;
+	}
+
+	/**
+	 * Tells us whether {@code who} would complete a line by playing at (x,y),
+	 * regardless of whose turn it is. Used by the defensive agent.
+	 *
+	 * @param who 'X' or 'O'
+	 * @param x
+	 * @param y
+	 * @return true if the move completes a line
+	 */
+	boolean completesLine(char who, int x, int y) {
+		int cell = rules.cell(x, y);
+		long bits = ((who == 'X') ? xBits : oBits) | (1L << cell);
+		return rules.hasLineThrough(bits, cell);
+	}
+
+	/**
+	 * Tells us if this game is a valid game.
+	 *
+	 * @return
+	 */
+	public boolean isValid() {
+		int xs = Long.bitCount(xBits);
+		int os = Long.bitCount(oBits);
+		if (Math.abs(xs - os) > 1)
+			return false;
+
+		if (xs > os && toMove == X_TURN)
+			return false;
+		else if (xs < os && toMove == O_TURN)
+			return false;
+
+		return true;
+	}
+
+	/**
+	 * Executes move on the current game. Returns the resulting game without
+	 * changing the current one.
+	 *
+	 * @param who the agent making move (X or O)
+	 * @param x   the row of the move, between 0 and m-1
+	 * @param y   the column of the move, between 0 and n-1
+	 * @return
+	 */
+	public MNKGame simulateMove(char who, int x, int y) throws IllegalMoveException {
+		int cell = check(who, x, y);
+		MNKGame copy = clone();
+		copy.place(cell);
+
+		return copy;
+	}
+
+	/**
+	 * Executes the move m on the current game. Returns the resulting game without
+	 * changing the current one.
+	 *
+	 * @param m
+	 * @return the Game after the move has been executed.
+	 */
+	public MNKGame simulateMove(Move m) throws IllegalMoveException {
+		return simulateMove(m.who.getName(), m.x, m.y);
+	}
+
+	/**
+	 * Executes the move m. This will change the game.
+	 *
+	 * One in {@link FlightEvents#SAMPLING} moves is timed, and recorded as a
+	 * {@link FlightEvents.MoveExecuted} event if a flight recording is running.
+	 *
+	 * @param m
+	 */
+	public void executeMove(Move m) throws IllegalMoveException {
+		if ((++executed & FlightEvents.SAMPLE_MASK) != 0) {
+			place(check(m.who.getName(), m.x, m.y));
+			return;
+		}
+
+		FlightEvents.MoveExecuted event = new FlightEvents.MoveExecuted();
+		event.begin();
+		int cell = check(m.who.getName(), m.x, m.y);
+		place(cell);
+		event.end();
+		if (event.shouldCommit()) {
+			event.player = m.who.getName();
+			event.cell = cell;
+			event.key = key;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Executes move on the current game.
+	 *
+	 * @param who the agent making move (X or O)
+	 * @param x   the row of the move, between 0 and m-1
+	 * @param y   the column of the move, between 0 and n-1
+	 */
+	public void executeMove(char who, int x, int y) throws IllegalMoveException {
+		executeMove(new Move(who, x, y));
+	}
+
+	/**
+	 * Checks that {@code who} can play at (x,y).
+	 *
+	 * @return the cell of (x,y)
+	 * @throws IllegalMoveException if it's not {@code who}'s turn, or (x,y) is not
+	 *                              an empty cell of the board
+	 */
+	private int check(char who, int x, int y) throws IllegalMoveException {
+		if (toMove == X_TURN && who != 'X')
+			throw new IllegalMoveException("it is not O's turn");
+
+		if (toMove == O_TURN && who != 'O')
+			throw new IllegalMoveException("it is not X's turn");
+
+		if (!rules.contains(x, y))
+			throw new IllegalMoveException("Invalid move. The location (" + x + "," + y + ") is not on the "
+					+ rules.m + "x" + rules.n + " board");
+
+		int cell = rules.cell(x, y);
+		if (((xBits | oBits) & (1L << cell)) != 0)
+			throw new IllegalMoveException("Invalid move. The location (" + x + "," + y + ") is not empty");
+
+		return cell;
+	}
+
+	/**
+	 * Puts the piece of the side to move on the (empty) cell {@code cell}, passes
+	 * the turn and updates the state of the game: only the lines through the cell
+	 * are checked, since they're the only ones the move can complete.
+	 *
+	 * @param cell the cell number
+	 */
+	void place(int cell) {
+		long bit = 1L << cell;
+		long weight = rules.pow3[cell];
+		zobrist ^= rules.zobrist[2 * cell + toMove] ^ rules.zobristTurn;
+		if (toMove == X_TURN) {
+			xBits |= bit;
+			toMove = O_TURN;
+			key += weight + 1;
+			if (rules.hasLineThrough(xBits, cell)) {
+				state = X_WON;
+				return;
+			}
+		} else {
+			oBits |= bit;
+			toMove = X_TURN;
+			key += 2 * weight - 1;
+			if (rules.hasLineThrough(oBits, cell)) {
+				state = O_WON;
+				return;
+			}
+		}
+
+		if (state == ONGOING && (xBits | oBits) == rules.full)
+			state = DRAW;
+	}
+
+	/**
+	 * Deep copy
+	 */
+	public MNKGame clone() {
+		return new MNKGame(this);
+	}
+
+	/**
+	 * The board as a number in base 3, with one digit per cell: 0 for an empty
+	 * cell, 1 for X and 2 for O, cell 0 being the most significant, followed by a
+	 * last digit for whose turn it is: 1 for X, 2 for O. It is unique to the game on
+	 * boards of up to {@link MNKRules#MAX_KEYED_CELLS} cells, which is all boards
+	 * up to 6x6. For Tic Tac Toe it is {@link Game#hashCode()}.
+	 *
+	 * @return the key of the game
+	 */
+	public long key() {
+		return key;
+	}
+
+	/**
+	 * A 64 bit Zobrist key of the game: the XOR of a random key for each piece on
+	 * the board, and one for O to move, see {@link MNKRules#zobrist}. Moves update
+	 * it with two XORs. Unlike {@link #key()} it is defined for all boards, and its
+	 * bits are uniformly distributed, which makes it the key to index hash tables
+	 * such as the {@link TranspositionTable} with. Different games have the same
+	 * key with a probability of about 2 to the power of -64.
+	 *
+	 * @return the Zobrist key of the game
+	 */
+	public long zobrist() {
+		return zobrist;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(key);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (!(other instanceof MNKGame))
+			return false;
+
+		MNKGame g = (MNKGame) other;
+		return rules == g.rules && xBits == g.xBits && oBits == g.oBits && toMove == g.toMove;
+	}
+
+	public int getState() {
+		return this.state;
+	}
+
+	public boolean isTerminal() {
+		return this.state != ONGOING;
+	}
+
+	/**
+	 * Plays and prints a game between two random players.
+	 *
+	 * @param args optionally m, n and k, by default 5, 5 and 4
+	 */
+	public static void main(String[] args) throws IllegalMoveException {
+		int m = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int n = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int k = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+		MNKGame g = new MNKGame(MNKRules.of(m, n, k));
+		Random random = new Random();
+		while (!g.isTerminal()) {
+			List<Move> moves = g.getPossibleMoves();
+			Move move = moves.get(random.nextInt(moves.size()));
+			g.executeMove(move);
+			System.out.println(move + g.toString());
+		}
+
+		String[] outcomes = { "ongoing", "X won", "O won", "draw" };
+		System.out.println(outcomes[g.getState()] + ", key " + g.key());
+	}
+
+}
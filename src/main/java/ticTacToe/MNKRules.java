@@ -0,0 +1,252 @@
+package ticTacToe;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The board of an m,n,k-game: an m×n board on which the players take turns to put their pieces, and the first to get
+ * k of them in a row, horizontally, vertically or diagonally, wins. Tic Tac Toe is the 3,3,3-game.
+ *
+ * Cell (x,y), with row x from 0 to m-1 and column y from 0 to n-1, is cell number {@code n*x+y}, and the cells of a
+ * side are kept as a {@code long} bitboard with bit {@code n*x+y} set for each of its pieces, so boards have at most
+ * 64 cells. The masks of all the lines of k cells are precomputed, and for each cell the masks of the lines through
+ * it, so checking whether a move wins only looks at those.
+ *
+ * The rules are immutable and shared, one instance per m, n and k, see {@link #of(int, int, int)}.
+ */
+public final class MNKRules {
+
+	/**
+	 * the largest number of cells of a board
+	 */
+	public static final int MAX_CELLS = 64;
+
+	/**
+	 * the largest number of cells for which {@link MNKGame#key()} is unique and not negative: the key has a digit per
+	 * cell and one for the turn, and the largest key of 39 digits, 3 to the power of 39 minus 1, is the largest that
+	 * fits in a {@code long}
+	 */
+	public static final int MAX_KEYED_CELLS = 38;
+
+	/**
+	 * the rows, columns and length of a winning line
+	 */
+	final int m;
+	final int n;
+	final int k;
+
+	/**
+	 * {@code m*n}
+	 */
+	final int cells;
+
+	/**
+	 * the mask with all cells set
+	 */
+	final long full;
+
+	/**
+	 * All the lines of k cells, as masks: the horizontal ones first, row by row, then the vertical ones, then the
+	 * diagonals, then the anti-diagonals. For Tic Tac Toe, this is the order of {@link Game#LINES}.
+	 */
+	final long[] lines;
+
+	/**
+	 * The lines that cell {@code c} is on are {@code linesThrough[throughStart[c]]} to
+	 * {@code linesThrough[throughStart[c+1]-1]}. They are in one array rather than one per cell to save an indirection
+	 * on every move.
+	 */
+	final long[] linesThrough;
+	final int[] throughStart;
+
+	/**
+	 * {@code pow3[c]} is the weight of cell {@code c} in {@link MNKGame#key()}, 3 to the power of {@code cells-c}
+	 */
+	final long[] pow3;
+
+	/**
+	 * The Zobrist keys of the board: {@code zobrist[2*c]} for an X on cell {@code c}, {@code zobrist[2*c+1]} for an O,
+	 * and {@link #zobristTurn} for O to move. The {@link MNKGame#zobrist()} key of a game is the XOR of the keys of its
+	 * pieces and turn. They are drawn from a fixed seed, so keys are the same in every run.
+	 */
+	final long[] zobrist;
+	final long zobristTurn;
+
+	private static final ConcurrentHashMap<Long, MNKRules> CACHE = new ConcurrentHashMap<Long, MNKRules>();
+
+	/**
+	 * the rules of Tic Tac Toe
+	 */
+	public static final MNKRules TIC_TAC_TOE = of(3, 3, 3);
+
+	private MNKRules(int m, int n, int k) {
+		this.m = m;
+		this.n = n;
+		this.k = k;
+		this.cells = m * n;
+		this.full = cells == 64 ? -1L : (1L << cells) - 1;
+
+		// directions as (dx,dy), in the order of the lines
+		int[][] directions = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+		long[] all = new long[4 * cells];
+		int[] through = new int[cells];
+		int count = 0;
+		for (int[] d : directions) {
+			for (int x = 0; x < m; x++) {
+				for (int y = 0; y < n; y++) {
+					int endX = x + (k - 1) * d[0];
+					int endY = y + (k - 1) * d[1];
+					if (endX >= m || endY < 0 || endY >= n)
+						continue;
+
+					long line = 0;
+					for (int i = 0; i < k; i++)
+						line |= 1L << (n * (x + i * d[0]) + y + i * d[1]);
+
+					all[count++] = line;
+					for (long b = line; b != 0; b &= b - 1)
+						through[Long.numberOfTrailingZeros(b)]++;
+				}
+			}
+		}
+
+		this.lines = new long[count];
+		System.arraycopy(all, 0, lines, 0, count);
+
+		this.throughStart = new int[cells + 1];
+		for (int c = 0; c < cells; c++)
+			throughStart[c + 1] = throughStart[c] + through[c];
+
+		this.linesThrough = new long[throughStart[cells]];
+		int[] next = throughStart.clone();
+		for (long line : lines)
+			for (long b = line; b != 0; b &= b - 1)
+				linesThrough[next[Long.numberOfTrailingZeros(b)]++] = line;
+
+		SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L ^ ((long) m << 16 | n << 8 | k));
+		this.zobrist = new long[2 * cells];
+		for (int i = 0; i < zobrist.length; i++)
+			zobrist[i] = random.nextLong();
+		this.zobristTurn = random.nextLong();
+
+		this.pow3 = new long[cells];
+		long p = 3;
+		for (int c = cells - 1; c >= 0; c--, p *= 3)
+			pow3[c] = p;
+	}
+
+	/**
+	 * @return the rules of the m,n,k-game
+	 * @throws IllegalArgumentException if the board has less than 1 or more than {@link #MAX_CELLS} cells, or k is
+	 *                                  less than 1 or more than both m and n
+	 */
+	public static MNKRules of(int m, int n, int k) {
+		if (m < 1 || n < 1 || m * n > MAX_CELLS)
+			throw new IllegalArgumentException("Boards should have 1 to " + MAX_CELLS + " cells, not " + m + "x" + n);
+		if (k < 1 || (k > m && k > n))
+			throw new IllegalArgumentException("A " + m + "x" + n + " board can't have " + k + " in a row");
+
+		Long id = ((long) m << 32) | (n << 16) | k;
+		MNKRules rules = CACHE.get(id);
+		if (rules == null) {
+			CACHE.putIfAbsent(id, new MNKRules(m, n, k));
+			rules = CACHE.get(id);
+		}
+
+		return rules;
+	}
+
+	public int getRows() {
+		return m;
+	}
+
+	public int getColumns() {
+		return n;
+	}
+
+	/**
+	 * @return the number of pieces in a row that win
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * @return {@code m*n}
+	 */
+	public int cells() {
+		return cells;
+	}
+
+	/**
+	 * @return the number of lines of k cells
+	 */
+	public int lines() {
+		return lines.length;
+	}
+
+	/**
+	 * @return the cell number of (x,y)
+	 */
+	public int cell(int x, int y) {
+		return n * x + y;
+	}
+
+	/**
+	 * @return whether (x,y) is on the board
+	 */
+	public boolean contains(int x, int y) {
+		return x >= 0 && x < m && y >= 0 && y < n;
+	}
+
+	/**
+	 * @return the Zobrist key of a board with X's pieces {@code xBits}, O's {@code oBits} and {@code toMove} to move,
+	 *         see {@link #zobrist}
+	 */
+	long zobrist(long xBits, long oBits, int toMove) {
+		long z = toMove == MNKGame.O_TURN ? zobristTurn : 0L;
+		for (; xBits != 0; xBits &= xBits - 1)
+			z ^= zobrist[2 * Long.numberOfTrailingZeros(xBits)];
+		for (; oBits != 0; oBits &= oBits - 1)
+			z ^= zobrist[2 * Long.numberOfTrailingZeros(oBits) + 1];
+
+		return z;
+	}
+
+	/**
+	 * @return whether the pieces {@code bits} have a line through cell {@code c}
+	 */
+	boolean hasLineThrough(long bits, int c) {
+		for (int i = throughStart[c], end = throughStart[c + 1]; i < end; i++) {
+			long line = linesThrough[i];
+			if ((bits & line) == line)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return {@link MNKGame#X_WON}, {@link MNKGame#O_WON}, {@link MNKGame#DRAW} or {@link MNKGame#ONGOING} for a
+	 *         board with X's pieces {@code xBits} and O's {@code oBits}, checking every line in order, X first
+	 */
+	int evaluate(long xBits, long oBits) {
+		for (long line : lines) {
+			if ((xBits & line) == line)
+				return MNKGame.X_WON;
+			if ((oBits & line) == line)
+				return MNKGame.O_WON;
+		}
+
+		if ((xBits | oBits) == full)
+			return MNKGame.DRAW;
+
+		return MNKGame.ONGOING;
+	}
+
+	@Override
+	public String toString() {
+		return m + "," + n + "," + k;
+	}
+
+}
@@ -0,0 +1,46 @@
+package ticTacToe;
+
+/**
+ * An agent that plays by searching the game tree with negamax alpha-beta, see {@link MinimaxSearch}. It needs no
+ * training and plays Tic Tac Toe perfectly; on larger {@link MNKGame} boards, it plays the best move it finds in its
+ * time budget, see {@link #getMove(MNKGame)}.
+ */
+public class MinimaxAgent extends Agent {
+
+	/**
+	 * the default time budget of a move, in ms. Tic Tac Toe positions are solved long before it is spent.
+	 */
+	public static final long DEFAULT_MILLIS = 100;
+
+	/**
+	 * the default memory budget of the transposition table, in MB
+	 */
+	public static final int DEFAULT_MEGABYTES = 16;
+
+	public MinimaxAgent() {
+		this(DEFAULT_MILLIS);
+	}
+
+	/**
+	 * @param millis the time budget of a move, in ms, 0 for no limit
+	 */
+	public MinimaxAgent(long millis) {
+		this(millis, DEFAULT_MEGABYTES);
+	}
+
+	/**
+	 * @param millis    the time budget of a move, in ms, 0 for no limit
+	 * @param megabytes the memory budget of the transposition table
+	 */
+	public MinimaxAgent(long millis, int megabytes) {
+		super(new MinimaxPolicy(millis, megabytes));
+	}
+
+	/**
+	 * @return the search of this agent, for its statistics
+	 */
+	public MinimaxSearch getSearch() {
+		return ((MinimaxPolicy) policy).getSearch();
+	}
+
+}
@@ -0,0 +1,52 @@
+package ticTacToe;
+
+/**
+ * A policy that searches for its moves with a {@link MinimaxSearch} instead of looking them up, so it needs no
+ * training. On Tic Tac Toe every search is solved to the end of the game, so the policy plays perfectly: it never
+ * loses, and wins whenever the opponent gives it the chance.
+ *
+ * The search keeps its transposition table between moves, and is not thread safe, so a policy should only be used by
+ * one agent.
+ */
+public class MinimaxPolicy extends Policy {
+
+	final MinimaxSearch search;
+
+	/**
+	 * the time budget of a move, in ms
+	 */
+	final long millis;
+
+	/**
+	 * @param millis    the time budget of a move, in ms, 0 for no limit
+	 * @param megabytes the memory budget of the transposition table
+	 */
+	public MinimaxPolicy(long millis, int megabytes) {
+		this.search = new MinimaxSearch(megabytes);
+		this.millis = millis;
+	}
+
+	@Override
+	public Move getMove(Game g) {
+		int cell = search.search(g, millis);
+		return cell < 0 ? null : Move.of(g.getWhoseTurn().getName(), cell);
+	}
+
+	/**
+	 * @return the best move found in {@code g}, on any board, null if the game is over
+	 */
+	@Override
+	public Move getMove(MNKGame g) {
+		int cell = search.search(g, millis);
+		if (cell < 0)
+			return null;
+
+		int n = g.getRules().getColumns();
+		return new Move(g.toMove == MNKGame.X_TURN ? 'X' : 'O', cell / n, cell % n);
+	}
+
+	public MinimaxSearch getSearch() {
+		return search;
+	}
+
+}
@@ -0,0 +1,359 @@
+package ticTacToe;
+
+/**
+ * Searches the game tree of an {@link MNKGame} for the best move with negamax alpha-beta, deepening iteratively until
+ * the game is solved, the board is full or the time is up. Needs no training, and works on any board: on Tic Tac Toe
+ * it solves every position in well under a millisecond, and on larger boards it plays the best move it finds within
+ * its time budget.
+ *
+ * Positions are searched on the searcher's own copy of the bitboards, with moves made and unmade in place, and looked
+ * up in a {@link TranspositionTable} by their Zobrist key, which is kept across searches so that later moves reuse what
+ * earlier ones found. Moves are tried in the order: the best move stored in the table, the two killer moves of the ply
+ * (the last moves that cut off a sibling position), then by history score (how often and how deep a move caused a
+ * cutoff). Positions at the depth limit that aren't over are scored by counting, for each line, the pieces of the one
+ * player on it, if the other has none.
+ *
+ * Scores are from the point of view of the side to move: {@link #WIN} minus the number of plies to the win, so quicker
+ * wins score higher, the opposite for losses, and 0 for a draw.
+ *
+ * A search is not thread safe; use one per thread.
+ */
+public class MinimaxSearch {
+
+	/**
+	 * the score of a win on the next move
+	 */
+	public static final int WIN = 1000000;
+
+	/**
+	 * scores beyond this are wins or losses in a known number of plies
+	 */
+	static final int WIN_BOUND = WIN - MNKRules.MAX_CELLS - 1;
+
+	static final int INFINITY = WIN + 1;
+
+	/**
+	 * the weight of a line is 4 times that of one with a piece less, up to {@code 1 << (2 * MAX_WEIGHT_SHIFT)}, so
+	 * that the sum over all the lines of a board fits in an int
+	 */
+	static final int MAX_WEIGHT_SHIFT = 9;
+
+	/**
+	 * how many nodes are searched between two checks of the time
+	 */
+	static final int CHECK_INTERVAL = 1024;
+
+	final TranspositionTable table;
+
+	MNKRules rules;
+
+	/**
+	 * the position being searched: the pieces of X and O, the side to move and the Zobrist key
+	 */
+	final long[] bits = new long[2];
+	int toMove;
+	long key;
+
+	/**
+	 * per ply: the moves generated and their ordering scores; the two killer moves
+	 */
+	int[][] moves;
+	int[][] order;
+	int[][] killers;
+
+	/**
+	 * {@code history[side][cell]}: the sum of depth squared over the cutoffs by the move
+	 */
+	int[][] history;
+
+	/**
+	 * {@code weights[c]}: the value of c pieces of one player on a line without pieces of the other
+	 */
+	int[] weights;
+
+	long deadline;
+	boolean aborted;
+	int rootMove;
+
+	/**
+	 * the results of the last search
+	 */
+	long nodes;
+	int depth;
+	int score;
+	int bestMove;
+
+	/**
+	 * @param megabytes the memory budget of the transposition table
+	 */
+	public MinimaxSearch(int megabytes) {
+		this.table = new TranspositionTable(megabytes);
+	}
+
+	/**
+	 * Searches {@code g} for the best move of the side to move.
+	 *
+	 * @param g      the game, which is not changed
+	 * @param millis the time budget: no deeper iteration is started, and the current one is abandoned, once it is
+	 *               spent. The first iteration, one ply deep, is always completed. 0 for no limit.
+	 * @return the cell of the best move, -1 if the game is over
+	 */
+	public int search(MNKGame g, long millis) {
+		return search(g, millis, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Searches {@code g} for the best move of the side to move, at most {@code maxDepth} plies deep.
+	 *
+	 * @see #search(MNKGame, long)
+	 */
+	public int search(MNKGame g, long millis, int maxDepth) {
+		prepare(g.rules);
+		bits[0] = g.xBits;
+		bits[1] = g.oBits;
+		toMove = g.toMove;
+		key = g.zobrist;
+
+		nodes = 0;
+		depth = 0;
+		score = 0;
+		bestMove = -1;
+		if (g.isTerminal())
+			return -1;
+
+		table.newSearch();
+		for (int[] k : killers)
+			k[0] = k[1] = -1;
+		for (int[] h : history)
+			for (int c = 0; c < h.length; c++)
+				h[c] >>= 2;
+
+		int limit = Math.min(maxDepth, Long.bitCount(g.emptyMask()));
+		deadline = millis > 0 ? System.nanoTime() + millis * 1000000L : Long.MAX_VALUE;
+		for (int d = 1; d <= limit; d++) {
+			aborted = false;
+			int s = negamax(d, 0, -INFINITY, INFINITY);
+			if (aborted)
+				break;
+
+			depth = d;
+			score = s;
+			bestMove = rootMove;
+			if (Math.abs(s) > WIN_BOUND) // solved
+				break;
+		}
+
+		return bestMove;
+	}
+
+	/**
+	 * Sizes the per-ply arrays for {@code r}, if they aren't already.
+	 */
+	private void prepare(MNKRules r) {
+		if (r == rules)
+			return;
+
+		rules = r;
+		moves = new int[r.cells + 1][r.cells];
+		order = new int[r.cells + 1][r.cells];
+		killers = new int[r.cells + 1][2];
+		history = new int[2][r.cells];
+		weights = new int[r.k + 1];
+		for (int c = 1; c <= r.k; c++)
+			weights[c] = 1 << (2 * Math.min(c - 1, MAX_WEIGHT_SHIFT));
+	}
+
+	/**
+	 * @return the score of the position for the side to move, searched {@code depth} plies deep, within the window
+	 *         ({@code alpha}, {@code beta}): a fail-soft bound outside of it
+	 */
+	int negamax(int depth, int ply, int alpha, int beta) {
+		if ((++nodes & (CHECK_INTERVAL - 1)) == 0 && this.depth > 0 && System.nanoTime() > deadline)
+			aborted = true;
+		if (aborted)
+			return 0;
+
+		long occupied = bits[0] | bits[1];
+		if (occupied == rules.full)
+			return 0;
+		if (depth == 0)
+			return evaluate();
+
+		// the table's move is tried first; its score can end the search, except at the root, which needs a move
+		int ttMove = -1;
+		long data = table.probe(key);
+		if (data != TranspositionTable.MISS) {
+			ttMove = TranspositionTable.move(data);
+			if (ply > 0 && TranspositionTable.depth(data) >= depth) {
+				int s = fromTable(TranspositionTable.score(data), ply);
+				int bound = TranspositionTable.bound(data);
+				if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && s >= beta)
+						|| (bound == TranspositionTable.UPPER && s <= alpha))
+					return s;
+			}
+		}
+
+		int[] ms = moves[ply];
+		int[] os = order[ply];
+		int[] ks = killers[ply];
+		int[] hs = history[toMove];
+		int n = 0;
+		for (long empty = ~occupied & rules.full; empty != 0; empty &= empty - 1) {
+			int c = Long.numberOfTrailingZeros(empty);
+			ms[n] = c;
+			os[n++] = c == ttMove ? Integer.MAX_VALUE
+					: c == ks[0] ? Integer.MAX_VALUE - 1 : c == ks[1] ? Integer.MAX_VALUE - 2 : hs[c];
+		}
+
+		int alpha0 = alpha;
+		int best = -INFINITY;
+		int bestCell = -1;
+		for (int i = 0; i < n; i++) {
+			// selection sort, one move at a time, since a cutoff often comes early
+			int j = i;
+			for (int t = i + 1; t < n; t++)
+				if (os[t] > os[j])
+					j = t;
+			int c = ms[j];
+			ms[j] = ms[i];
+			os[j] = os[i];
+			ms[i] = c;
+
+			int side = toMove;
+			long bit = 1L << c;
+			long z = rules.zobrist[2 * c + side] ^ rules.zobristTurn;
+			bits[side] |= bit;
+			key ^= z;
+
+			int s;
+			if (rules.hasLineThrough(bits[side], c)) {
+				s = WIN - ply - 1;
+			} else {
+				toMove = side ^ 1;
+				s = -negamax(depth - 1, ply + 1, -beta, -alpha);
+				toMove = side;
+			}
+
+			bits[side] &= ~bit;
+			key ^= z;
+			if (aborted)
+				return 0;
+
+			if (s > best) {
+				best = s;
+				bestCell = c;
+				if (s > alpha) {
+					alpha = s;
+					if (alpha >= beta) {
+						if (c != ks[0]) {
+							ks[1] = ks[0];
+							ks[0] = c;
+						}
+						hs[c] += depth * depth;
+						break;
+					}
+				}
+			}
+		}
+
+		if (ply == 0)
+			rootMove = bestCell;
+
+		int bound = best <= alpha0 ? TranspositionTable.UPPER
+				: best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+		table.store(key, toTable(best, ply), Math.min(depth, 255), bound, bestCell);
+		return best;
+	}
+
+	/**
+	 * @return the heuristic score of the position for the side to move, from the lines that only one side has pieces on,
+	 *         within {@code WIN_BOUND - 1} so it's never taken for a win or a loss
+	 */
+	int evaluate() {
+		long mine = bits[toMove];
+		long theirs = bits[toMove ^ 1];
+		int s = 0;
+		for (long line : rules.lines) {
+			long m = mine & line;
+			long t = theirs & line;
+			if (t == 0)
+				s += weights[Long.bitCount(m)];
+			else if (m == 0)
+				s -= weights[Long.bitCount(t)];
+		}
+
+		return Math.max(-(WIN_BOUND - 1), Math.min(WIN_BOUND - 1, s));
+	}
+
+	/**
+	 * Win and loss scores count plies from the root, but the table stores them counted from the position, which may
+	 * be reached at another ply later.
+	 */
+	static int toTable(int s, int ply) {
+		return s > WIN_BOUND ? s + ply : s < -WIN_BOUND ? s - ply : s;
+	}
+
+	static int fromTable(int s, int ply) {
+		return s > WIN_BOUND ? s - ply : s < -WIN_BOUND ? s + ply : s;
+	}
+
+	/**
+	 * @return the number of positions visited by the last search
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the depth of the last completed iteration of the last search
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * @return the score of the best move of the last search, see {@link MinimaxSearch}
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * @return whether the last search proved a win or a loss
+	 */
+	public boolean isSolved() {
+		return Math.abs(score) > WIN_BOUND;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Plays and prints a game between two searches, with the depth, score and nodes of every move.
+	 *
+	 * @param args optionally m, n, k and the time budget of a move in ms, by default 3, 3, 3 and 1000
+	 */
+	public static void main(String[] args) throws IllegalMoveException {
+		int m = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int n = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int k = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		long millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+
+		MNKGame g = new MNKGame(MNKRules.of(m, n, k));
+		MinimaxSearch search = new MinimaxSearch(64);
+		while (!g.isTerminal()) {
+			long start = System.nanoTime();
+			int cell = search.search(g, millis);
+			long micros = (System.nanoTime() - start) / 1000;
+			Move move = new Move(g.toMove == MNKGame.X_TURN ? 'X' : 'O', cell / n, cell % n);
+			g.executeMove(move);
+			System.out.printf("%s: depth %d, score %d, %d nodes in %d us%n%s%n", move, search.depth, search.score,
+					search.nodes, micros, g);
+		}
+
+		String[] outcomes = { "ongoing", "X won", "O won", "draw" };
+		System.out.println(outcomes[g.getState()] + "; " + search.table);
+	}
+
+}
@@ -0,0 +1,437 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches an {@link MNKGame} for a good move with Monte Carlo tree search: each playout walks down the tree, choosing
+ * at each node the child with the highest UCT value (its mean outcome plus an exploration bonus for children tried
+ * less often), adds the children of the node it stops at, and finishes the game with random moves. The move played is
+ * the root child with the most playouts. Unlike {@link MinimaxSearch}, it needs no evaluation of positions, so it plays
+ * boards far too large to search exhaustively, and its strength grows with the number of playouts.
+ *
+ * The search runs on several threads, in one of two ways:
+ * <ul>
+ * <li>root parallelization: each thread grows its own tree, and the playouts of the root children are added up over
+ * the trees at the end. The threads share nothing while they search.</li>
+ * <li>tree parallelization: all threads grow one shared tree. A thread walking down the tree counts a lost playout in
+ * every node on its way (a virtual loss), which it takes back when its playout is over, so that the other threads
+ * explore other nodes meanwhile rather than all following it.</li>
+ * </ul>
+ * The nodes are kept in {@link NodeArena}s allocated once; when an arena is full, the tree stops growing and playouts
+ * carry on from its leaves.
+ *
+ * Before searching, a move that wins at once is played, and otherwise a move that blocks one that would win at once
+ * for the opponent, which random playouts are slow to notice. The last empty cell is played without searching.
+ *
+ * A search is not thread safe: it searches one position at a time. The caller's thread is one of its threads, and the
+ * others come from a {@link #POOL} shared by all searches, so a search holds no threads between moves and needs no
+ * shutting down, however many are created, e.g. by a {@link Tournament} for every batch of games.
+ */
+public class MonteCarloTreeSearch {
+
+	/**
+	 * the exploration constant of UCT
+	 */
+	static final double EXPLORATION = Math.sqrt(2);
+
+	/**
+	 * the number of playouts a thread claims at a time, and between two checks of the time
+	 */
+	static final int BATCH = 64;
+
+	/**
+	 * the virtual loss counted in each node on the way of a playout, with tree parallelization
+	 */
+	static final int VIRTUAL_LOSS = 3;
+
+	/**
+	 * the outcome of a drawn playout; otherwise a playout is won by {@link MNKGame#X_TURN} or {@link MNKGame#O_TURN}
+	 */
+	static final int DRAWN = -1;
+
+	/**
+	 * the budget of a move: a total number of playouts over all threads, and a time in ms. The search stops at the
+	 * first one reached; 0 for no limit.
+	 */
+	final long playouts;
+	final long millis;
+
+	final boolean treeParallel;
+
+	final Worker[] workers;
+
+	/**
+	 * The threads of all searches, besides their callers'. Threads are created when the searches running at the same
+	 * time need more, and end after a minute unused. They are daemon threads, so they don't keep the JVM running.
+	 */
+	static final ExecutorService POOL = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "mcts");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * the position being searched
+	 */
+	MNKRules rules;
+	long rootX;
+	long rootO;
+	int rootToMove;
+
+	/**
+	 * the playouts claimed by the threads, see {@link #BATCH}
+	 */
+	final AtomicLong claimed = new AtomicLong();
+	long deadline;
+
+	/**
+	 * the results of the last search
+	 */
+	long played;
+	int bestMove;
+	double value;
+
+	/**
+	 * @param playouts     the number of playouts of a move, 0 for no limit
+	 * @param millis       the time budget of a move, in ms, 0 for no limit
+	 * @param threads      the number of threads, at least 1
+	 * @param treeParallel whether the threads share one tree, rather than growing one each
+	 * @param capacity     the number of nodes of all trees together
+	 */
+	public MonteCarloTreeSearch(long playouts, long millis, int threads, boolean treeParallel, int capacity) {
+		if (playouts <= 0 && millis <= 0)
+			throw new IllegalArgumentException("There should be a budget of playouts or time");
+		if (threads < 1)
+			throw new IllegalArgumentException("threads should be at least 1");
+		if (capacity < threads * (MNKRules.MAX_CELLS + 1))
+			throw new IllegalArgumentException("The capacity is too small: " + capacity);
+
+		this.playouts = playouts;
+		this.millis = millis;
+		this.treeParallel = treeParallel;
+
+		SplittableRandom seeds = new SplittableRandom();
+		NodeArena shared = treeParallel ? new NodeArena(capacity) : null;
+		workers = new Worker[threads];
+		for (int i = 0; i < threads; i++)
+			workers[i] = new Worker(treeParallel ? shared : new NodeArena(capacity / threads), seeds.split());
+	}
+
+	/**
+	 * Searches {@code g} for a move of the side to move.
+	 *
+	 * @param g the game, which is not changed
+	 * @return the cell of the move, -1 if the game is over
+	 */
+	public int search(MNKGame g) {
+		rules = g.rules;
+		rootX = g.xBits;
+		rootO = g.oBits;
+		rootToMove = g.toMove;
+		played = 0;
+		value = 0;
+		bestMove = -1;
+		for (Worker w : workers)
+			w.arena.reset();
+		if (g.isTerminal())
+			return -1;
+
+		long empty = g.emptyMask();
+		if (Long.bitCount(empty) == 1)
+			return bestMove = Long.numberOfTrailingZeros(empty);
+
+		long mine = rootToMove == MNKGame.X_TURN ? rootX : rootO;
+		long theirs = rootToMove == MNKGame.X_TURN ? rootO : rootX;
+		int block = -1;
+		for (long e = empty; e != 0; e &= e - 1) {
+			int c = Long.numberOfTrailingZeros(e);
+			if (rules.hasLineThrough(mine | 1L << c, c)) {
+				value = 1;
+				return bestMove = c;
+			}
+			if (block < 0 && rules.hasLineThrough(theirs | 1L << c, c))
+				block = c;
+		}
+		if (block >= 0)
+			return bestMove = block;
+
+		claimed.set(0);
+		deadline = millis > 0 ? System.nanoTime() + millis * 1000000L : Long.MAX_VALUE;
+		run();
+
+		// the most played root child, over all trees
+		long[] visits = new long[rules.cells];
+		long[] scores = new long[rules.cells];
+		for (int i = 0; i < workers.length; i++) {
+			NodeArena a = workers[i].arena;
+			if (treeParallel && i > 0)
+				break;
+
+			int f = a.first.get(0);
+			for (int child = f, end = f + a.children[0]; f > 0 && child < end; child++) {
+				visits[a.cell[child]] += a.visits.get(child);
+				scores[a.cell[child]] += a.score.get(child);
+			}
+		}
+
+		for (int c = 0; c < visits.length; c++)
+			if ((empty & 1L << c) != 0 && (bestMove < 0 || visits[c] > visits[bestMove]))
+				bestMove = c;
+		if (visits[bestMove] > 0)
+			value = scores[bestMove] / (2.0 * visits[bestMove]);
+
+		return bestMove;
+	}
+
+	/**
+	 * Runs the workers until the budget is spent: the first on the caller's thread, the others on the {@link #POOL}.
+	 */
+	private void run() {
+		List<Future<Long>> futures = new ArrayList<Future<Long>>();
+		for (int i = 1; i < workers.length; i++)
+			futures.add(POOL.submit(workers[i]));
+
+		played = workers[0].call();
+		try {
+			for (Future<Long> f : futures)
+				played += f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while searching", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A search thread failed", e.getCause());
+		}
+	}
+
+	/**
+	 * @return the number of playouts a thread may play next, 0 once the budget is spent
+	 */
+	int claim() {
+		if (System.nanoTime() > deadline)
+			return 0;
+		if (playouts <= 0)
+			return BATCH;
+
+		long start = claimed.getAndAdd(BATCH);
+		return (int) Math.max(0, Math.min(BATCH, playouts - start));
+	}
+
+	/**
+	 * One thread of the search, with its own random numbers and scratch arrays, and its own arena with root
+	 * parallelization.
+	 */
+	final class Worker implements Callable<Long> {
+
+		final NodeArena arena;
+
+		final SplittableRandom random;
+
+		/**
+		 * the nodes of the current playout, from the root
+		 */
+		final int[] path = new int[MNKRules.MAX_CELLS + 1];
+
+		/**
+		 * the pieces of X and O in the current playout
+		 */
+		final long[] bits = new long[2];
+
+		/**
+		 * the empty cells of a random playout
+		 */
+		final int[] empties = new int[MNKRules.MAX_CELLS];
+
+		Worker(NodeArena arena, SplittableRandom random) {
+			this.arena = arena;
+			this.random = random;
+		}
+
+		/**
+		 * @return the number of playouts played
+		 */
+		@Override
+		public Long call() {
+			long count = 0;
+			for (int n = claim(); n > 0; n = claim()) {
+				for (int i = 0; i < n; i++)
+					playout();
+				count += n;
+			}
+
+			return count;
+		}
+
+		/**
+		 * Walks down the tree by UCT, expands the leaf reached, plays the game out at random and records its outcome in
+		 * the nodes on the way.
+		 */
+		void playout() {
+			NodeArena a = arena;
+			int loss = treeParallel ? VIRTUAL_LOSS : 1;
+			long[] bits = this.bits;
+			bits[0] = rootX;
+			bits[1] = rootO;
+			int side = rootToMove;
+			int node = 0;
+			int depth = 0;
+			int winner = -2;
+			a.visits.incrementAndGet(0);
+
+			while (true) {
+				int f = a.first.get(node);
+				if (f <= 0) {
+					// expand nodes from their second visit on, and the root at once
+					if (f == NodeArena.EXPANDING || (node != 0 && a.visits.get(node) <= loss))
+						break;
+					f = a.expand(node, ~(bits[0] | bits[1]) & rules.full);
+					if (f == NodeArena.UNEXPANDED)
+						break;
+				}
+
+				int child = select(a, node, f, f + a.children[node]);
+				a.visits.addAndGet(child, loss);
+				path[++depth] = child;
+				node = child;
+
+				int c = a.cell[child];
+				bits[side] |= 1L << c;
+				if (rules.hasLineThrough(bits[side], c)) {
+					winner = side;
+					break;
+				}
+				if ((bits[0] | bits[1]) == rules.full) {
+					winner = DRAWN;
+					break;
+				}
+				side ^= 1;
+			}
+
+			if (winner == -2)
+				winner = rollout(bits, side);
+
+			for (int d = 1; d <= depth; d++) {
+				int mover = rootToMove ^ ((d - 1) & 1);
+				a.score.addAndGet(path[d], winner == mover ? 2 : winner == DRAWN ? 1 : 0);
+				if (loss > 1)
+					a.visits.addAndGet(path[d], 1 - loss);
+			}
+		}
+
+		/**
+		 * @return the child from {@code first} to {@code end} with the highest UCT value, the first one not played yet
+		 *         if there is one
+		 */
+		int select(NodeArena a, int node, int first, int end) {
+			double logParent = Math.log(Math.max(1, a.visits.get(node)));
+			int best = first;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int child = first; child < end; child++) {
+				int v = a.visits.get(child);
+				if (v == 0)
+					return child;
+
+				double uct = a.score.get(child) / (2.0 * v) + EXPLORATION * Math.sqrt(logParent / v);
+				if (uct > bestValue) {
+					bestValue = uct;
+					best = child;
+				}
+			}
+
+			return best;
+		}
+
+		/**
+		 * Plays random moves from the position {@code bits} with {@code side} to move until the game is over.
+		 *
+		 * @return the winner, or {@link MonteCarloTreeSearch#DRAWN}
+		 */
+		int rollout(long[] bits, int side) {
+			int n = 0;
+			for (long e = ~(bits[0] | bits[1]) & rules.full; e != 0; e &= e - 1)
+				empties[n++] = Long.numberOfTrailingZeros(e);
+
+			while (n > 0) {
+				int i = random.nextInt(n);
+				int c = empties[i];
+				empties[i] = empties[--n];
+				bits[side] |= 1L << c;
+				if (rules.hasLineThrough(bits[side], c))
+					return side;
+				side ^= 1;
+			}
+
+			return DRAWN;
+		}
+
+	}
+
+	/**
+	 * @return the number of playouts of the last search, 0 if its move was played without searching
+	 */
+	public long getPlayouts() {
+		return played;
+	}
+
+	/**
+	 * @return the mean outcome of the playouts of the move found by the last search, from 0 for a loss to 1 for a win
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the number of nodes of the trees of the last search
+	 */
+	public int getNodes() {
+		int nodes = 0;
+		for (int i = 0; i < workers.length && (i == 0 || !treeParallel); i++)
+			nodes += workers[i].arena.nodes();
+
+		return nodes;
+	}
+
+	public boolean isTreeParallel() {
+		return treeParallel;
+	}
+
+	public int getThreads() {
+		return workers.length;
+	}
+
+	/**
+	 * Plays and prints a game between two searches, with the playouts, nodes and value of every move.
+	 *
+	 * @param args optionally m, n, k, the time budget of a move in ms, the number of threads, and "root" for root
+	 *             parallelization, by default 7, 7, 5, 1000, all cores and tree parallelization
+	 */
+	public static void main(String[] args) throws IllegalMoveException {
+		int m = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		int n = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+		int k = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		long millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+		int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+		boolean tree = args.length <= 5 || !args[5].equals("root");
+
+		MNKGame g = new MNKGame(MNKRules.of(m, n, k));
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(0, millis, threads, tree, 1 << 22);
+		while (!g.isTerminal()) {
+			int cell = search.search(g);
+			Move move = new Move(g.toMove == MNKGame.X_TURN ? 'X' : 'O', cell / n, cell % n);
+			g.executeMove(move);
+			System.out.printf("%s: %d playouts, %d nodes, value %.3f%n%s%n", move, search.played, search.getNodes(),
+					search.value, g);
+		}
+
+		String[] outcomes = { "ongoing", "X won", "O won", "draw" };
+		System.out.println(outcomes[g.getState()]);
+	}
+
+}
@@ -2,6 +2,9 @@ package ticTacToe;
 
 /**
  * A move in the Tic-Tac-Toe game. If the game is modelled as an MDP, a Move is essentially an MDP Action.
+ * 
+ * Moves are also used on the larger boards of {@link MNKGame}, so a move only rejects negative coordinates: whether
+ * it is on the board is checked by the game it is played in, see {@link MNKGame#isLegal(Move)}.
  * @author ae187
  *
  */
@@ -10,9 +13,9 @@ public class Move {
 	/**
 	 * can be either 'X', or 'O' 
 	 */
-	public Agent who;
-	public int x;
-	public int y;
+	public final Agent who;
+	public final int x;
+	public final int y;
 	
 	public Move(char who, int x, int y)
 	{
@@ -22,7 +25,7 @@ public class Move {
 		this.who=new Agent();
 		this.who.setName(who);
 		
-		if (x<0 || x>2 || y<0 || y>2)
+		if (x<0 || y<0)
 			throw new IllegalArgumentException("Invalid x or y coordinates");
 		this.x=x;
 		this.y=y;
@@ -36,7 +39,7 @@ public class Move {
 		
 		this.who=who;
 		
-		if (x<0 || x>2 || y<0 || y>2)
+		if (x<0 || y<0)
 			throw new IllegalArgumentException("Invalid x or y coordinates");
 		this.x=x;
 		this.y=y;
@@ -49,6 +52,58 @@ public class Move {
 	
 	}
 	
+	/**
+	 * one shared instance per player and cell, see {@link #of(char, int)}
+	 */
+	private static final Move[] X_MOVES=new Move[9];
+	private static final Move[] O_MOVES=new Move[9];
+	
+	static {
+		Agent x=new Player('X');
+		Agent o=new Player('O');
+		for (int c=0; c<9; c++) {
+			X_MOVES[c]=new Move(x, c/3, c%3);
+			O_MOVES[c]=new Move(o, c/3, c%3);
+		}
+	}
+	
+	/**
+	 * The player of the shared moves, which can't be renamed, so that the shared moves can't be changed at all.
+	 */
+	private static final class Player extends Agent {
+		
+		Player(char name)
+		{
+			this.name=name;
+		}
+		
+		@Override
+		public void setName(char n)
+		{
+			throw new UnsupportedOperationException("The player of a shared move can't be renamed");
+		}
+	}
+	
+	/**
+	 * Returns a shared move instance rather than creating one, e.g. for policies that decode moves from bytes. 
+	 * Moves are immutable, so the instances can be shared by any number of policies and threads. There are only 
+	 * instances for the 3x3 board of {@link Game}.
+	 * @param who 'X' or 'O'
+	 * @param cell the cell {@code 3*x+y}
+	 * @return the move of {@code who} to {@code cell}
+	 */
+	public static Move of(char who, int cell)
+	{
+		if (cell<0 || cell>8)
+			throw new IllegalArgumentException("Invalid cell "+cell);
+		if (who=='X')
+			return X_MOVES[cell];
+		if (who=='O')
+			return O_MOVES[cell];
+		
+		throw new IllegalArgumentException("Can only be a move by X or by O");
+	}
+	
 	public String toString()
 	{
 		return who+"("+x+","+y+")";
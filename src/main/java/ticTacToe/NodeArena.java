@@ -0,0 +1,122 @@
+package ticTacToe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The nodes of a {@link MonteCarloTreeSearch} tree, as parallel arrays indexed by node number rather than one object
+ * per node. They are allocated once, for a fixed number of nodes, and reused by every search: a search allocates
+ * nodes by bumping {@link #size}, and starts again from just the root. Node 0 is the root, and the children of a node
+ * are allocated together, in one block.
+ *
+ * Several threads can search the same arena (tree parallelization): the counts they update are atomic, and a node is
+ * expanded by the one thread that moves its {@link #first} from {@link #UNEXPANDED} to {@link #EXPANDING}. The
+ * children's fields are written before {@link #first} is set to the first child, which publishes them.
+ */
+final class NodeArena {
+
+	/**
+	 * values of {@link #first} for a node without children: not expanded yet, or being expanded by another thread
+	 */
+	static final int UNEXPANDED = 0;
+	static final int EXPANDING = -1;
+
+	/**
+	 * the cell of the move that leads to the node
+	 */
+	final byte[] cell;
+
+	/**
+	 * the number of children of the node
+	 */
+	final byte[] children;
+
+	/**
+	 * the first child of the node, or {@link #UNEXPANDED} or {@link #EXPANDING}; the root is no one's child, so 0 is
+	 * never a first child
+	 */
+	final AtomicIntegerArray first;
+
+	/**
+	 * the number of playouts through the node, including virtual losses of playouts still in progress
+	 */
+	final AtomicIntegerArray visits;
+
+	/**
+	 * the outcomes of the playouts through the node for the player who moved to it: 2 for each win, 1 for each draw
+	 */
+	final AtomicIntegerArray score;
+
+	/**
+	 * the number of nodes allocated; it may run past the capacity when the arena is full
+	 */
+	final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * whether an expansion didn't fit since the last {@link #reset()}
+	 */
+	volatile boolean full;
+
+	NodeArena(int capacity) {
+		cell = new byte[capacity];
+		children = new byte[capacity];
+		first = new AtomicIntegerArray(capacity);
+		visits = new AtomicIntegerArray(capacity);
+		score = new AtomicIntegerArray(capacity);
+	}
+
+	int capacity() {
+		return cell.length;
+	}
+
+	/**
+	 * Empties the arena, but for a new root.
+	 */
+	void reset() {
+		init(0, -1);
+		size.set(1);
+		full = false;
+	}
+
+	private void init(int node, int c) {
+		cell[node] = (byte) c;
+		children[node] = 0;
+		first.set(node, UNEXPANDED);
+		visits.set(node, 0);
+		score.set(node, 0);
+	}
+
+	/**
+	 * Gives {@code node} one child per empty cell, unless another thread is already expanding it or the arena is full.
+	 *
+	 * @param empty the mask of the empty cells in the node's position
+	 * @return the first child, or {@link #UNEXPANDED} if the node wasn't expanded
+	 */
+	int expand(int node, long empty) {
+		if (full || !first.compareAndSet(node, UNEXPANDED, EXPANDING))
+			return UNEXPANDED;
+
+		int count = Long.bitCount(empty);
+		int start = size.getAndAdd(count);
+		if (start + count > capacity()) {
+			full = true;
+			first.set(node, UNEXPANDED);
+			return UNEXPANDED;
+		}
+
+		int child = start;
+		for (; empty != 0; empty &= empty - 1)
+			init(child++, Long.numberOfTrailingZeros(empty));
+		children[node] = (byte) count;
+		first.set(node, start);
+		return start;
+	}
+
+	/**
+	 * @return the number of nodes in use
+	 */
+	int nodes() {
+		return Math.min(size.get(), capacity());
+	}
+
+}
@@ -0,0 +1,155 @@
+package ticTacToe;
+
+import java.util.SplittableRandom;
+
+/**
+ * Trains one shared {@link QTable} with several {@link QLearningTrainer}s running at the same time, one per thread,
+ * each playing its own games against its own random opponent with its own random numbers.
+ *
+ * The workers update the shared table without any locking (the Hogwild! scheme): they read and write the q-values
+ * with plain, unsynchronized array accesses, so an update can occasionally be overwritten by another worker updating
+ * the same q-state at the same time. Tic Tac Toe updates are sparse and each one only moves a value by a fraction
+ * {@code alpha}, so those lost updates don't change what is learned in practice, while the workers scale without
+ * contention.
+ *
+ * The Java memory model only promises that writes of {@code double}s are atomic for {@code volatile} ones (JLS 17.7),
+ * so a plain q-value write could in principle be seen half written by another worker. 64-bit HotSpot JVMs do write
+ * {@code double}s atomically, and the table relies on that implementation behaviour rather than on the specification.
+ * Atomic or release writes were deliberately not used: the project targets Java 8, which has no {@code VarHandle}, and
+ * an {@code AtomicLongArray} of raw bits would put every q-value access of the single-threaded trainers, which share
+ * the {@link QTable} class and its {@code double[]}, behind a volatile read and a bits conversion.
+ */
+public class ParallelQLearningTrainer {
+
+	final QLearningTrainer[] workers;
+
+	/**
+	 * the number of episodes played by all workers, and the wall clock time spent, over all calls to {@link #train(long)}
+	 */
+	long episodes;
+	long nanos;
+
+	/**
+	 * @param qTable   the shared table to update
+	 * @param alpha    the learning rate
+	 * @param discount the discount factor
+	 * @param epsilon  the probability of exploring
+	 * @param rewards  the rewards, indexed as in {@link CompiledMDP}
+	 * @param threads  the number of worker threads, at least 1
+	 * @param seed     the seed the workers' random numbers are split from
+	 * @throws IllegalArgumentException if there aren't {@link CompiledMDP#REWARDS} rewards
+	 */
+	public ParallelQLearningTrainer(QTable qTable, double alpha, double discount, double epsilon, double[] rewards,
+			int threads, long seed) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads should be at least 1");
+
+		SplittableRandom seeds = new SplittableRandom(seed);
+		workers = new QLearningTrainer[threads];
+		for (int i = 0; i < threads; i++)
+			workers[i] = new QLearningTrainer(qTable, alpha, discount, epsilon, rewards, seeds.nextLong());
+	}
+
+	/**
+	 * Turns on experience replay, see {@link QLearningTrainer#setReplay}. Each worker gets its own buffer, so the
+	 * buffers are never shared between threads.
+	 *
+	 * @param capacity    the capacity of each worker's buffer
+	 * @param batchSize   the number of transitions replayed after every move
+	 * @param prioritized whether to sample in proportion to priorities
+	 * @param alpha       the priority exponent
+	 */
+	public void setReplay(int capacity, int batchSize, boolean prioritized, double alpha) {
+		for (QLearningTrainer worker : workers)
+			worker.setReplay(new ReplayBuffer(capacity, prioritized, alpha), batchSize);
+	}
+
+	/**
+	 * Has each worker report its own progress, from its own thread, see
+	 * {@link QLearningTrainer#setTrainingListener(TrainingListener, long)}. The listener must be thread safe.
+	 *
+	 * @param listener the listener, or null for none
+	 * @param interval the number of episodes a worker plays between reports
+	 */
+	public void setTrainingListener(TrainingListener listener, long interval) {
+		for (QLearningTrainer worker : workers)
+			worker.setTrainingListener(listener, interval);
+	}
+
+	/**
+	 * Plays {@code numEpisodes} episodes in total, split evenly between the workers, and returns when all of them are
+	 * done.
+	 *
+	 * @throws IllegalStateException if a worker failed, with its exception as the cause (and those of any other failed
+	 *                               workers suppressed), once all workers are done. The episodes are then not counted,
+	 *                               and the table is only partly trained.
+	 */
+	public void train(long numEpisodes) {
+		int n = workers.length;
+		Thread[] threads = new Thread[n];
+		final Throwable[] failures = new Throwable[n];
+		long t0 = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			final int index = i;
+			final QLearningTrainer worker = workers[i];
+			final long share = numEpisodes / n + (i < numEpisodes % n ? 1 : 0);
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						worker.train(share);
+					} catch (Throwable t) {
+						failures[index] = t;
+					}
+				}
+			}, "q-learning-" + i);
+			threads[i].start();
+		}
+
+		try {
+			for (Thread t : threads)
+				t.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while training", e);
+		}
+
+		// join() makes the workers' writes to failures visible here
+		IllegalStateException failed = null;
+		for (int i = 0; i < n; i++) {
+			if (failures[i] == null)
+				continue;
+
+			if (failed == null)
+				failed = new IllegalStateException("Q-learning worker " + i + " failed", failures[i]);
+			else
+				failed.addSuppressed(failures[i]);
+		}
+		if (failed != null)
+			throw failed;
+
+		nanos += System.nanoTime() - t0;
+		episodes += numEpisodes;
+	}
+
+	/**
+	 * @return the number of worker threads
+	 */
+	public int getThreads() {
+		return workers.length;
+	}
+
+	/**
+	 * @return the number of episodes played so far by all workers
+	 */
+	public long getEpisodes() {
+		return episodes;
+	}
+
+	/**
+	 * @return the total number of episodes played per second of wall clock time so far
+	 */
+	public double getEpisodesPerSecond() {
+		return nanos == 0 ? 0.0 : episodes * 1e9 / nanos;
+	}
+
+}
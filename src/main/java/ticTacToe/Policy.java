@@ -1,20 +1,61 @@
 package ticTacToe;
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
 
 /**
- * A Tic Tac Toe Policy implemented via a HashMap
+ * A Tic Tac Toe Policy implemented via a HashMap, or read directly from a memory mapped policy file, see
+ * {@link #save(String)}.
  * @author ae187
  *
  */
 public class Policy {
-	
+
+	/**
+	 * Policy files start with the bytes "TTTP".
+	 */
+	static final int MAGIC=0x54545450;
+
+	static final short VERSION=1;
+
+	/**
+	 * The header is the magic number (4 bytes), the version (2 bytes), the side to move (1 byte, 'X' or 'O'),
+	 * a reserved byte, the number of move bytes (4 bytes) and the CRC32 of the move bytes (4 bytes), big-endian.
+	 */
+	static final int HEADER_SIZE=16;
+
+	/**
+	 * The move byte of a state without a move.
+	 */
+	static final byte NO_MOVE=(byte) 0xFF;
+
 	/**
 	 * a hash map that stores the policy
 	 */
 	HashMap<Game, Move> policy=new HashMap<Game, Move>();
-	
+
+	/**
+	 * The move bytes of a policy loaded from a file, indexed by {@link Game#hashCode()}, null otherwise.
+	 * They are mapped from the file, not copied onto the heap.
+	 */
+	ByteBuffer moves;
+
+	/**
+	 * The player the moves of a loaded policy are for.
+	 */
+	char side;
+
 	/**
 	 * Create policy according to this map
 	 * @param policy
@@ -22,43 +63,176 @@ public class Policy {
 	public Policy(HashMap<Game, Move> policy) {
 		this.policy=policy;
 	}
-	
+
 	public Policy()
 	{}
-	
+
 	/**
 	 * Default behaviour here is that if the game state is not in the policy map {@link Policy#policy} then the policy returns null.
 	 * You can override this method for different behaviours, e.g. returning a random move if this happens.
-	 *  
+	 *
 	 * @param g
 	 * @return
 	 */
 	public Move getMove(Game g) {
-		
+
+		if (moves!=null)
+		{
+			byte b=moves.get(HEADER_SIZE+g.hashCode());
+			return b==NO_MOVE ? null : Move.of(side, b);
+		}
+
 		if (policy.containsKey(g))
 			return policy.get(g);
-		
+
 		return null;
-		
-		
+
+
 	}
-	
+
 	/**
-	 * loads policy from file. One possible format for storing a policy is as a sequence of lines where each line
-	 * specifies the action/move determined by the policy in a particular game state. The game states should not
-	 * explicitly stored, only their hashes are stored. The {@link Game} object itself can be constructed using the 
-	 * {@link Game#inverseHash} method.
-	 *  
+	 * Returns the move in an m,n,k-game. Policies that play on any board, such as {@link MinimaxPolicy}, override
+	 * this; the others only play Tic Tac Toe.
+	 *
+	 * @param g
+	 * @return the move of {@link #getMove(Game)} if {@code g} is a Tic Tac Toe {@link Game}
+	 * @throws UnsupportedOperationException for other boards
+	 */
+	public Move getMove(MNKGame g) {
+		if (g instanceof Game)
+			return getMove((Game) g);
+
+		throw new UnsupportedOperationException(getClass().getSimpleName()+" only plays Tic Tac Toe");
+	}
+
+	/**
+	 * Looks up the move in {@code g} with {@link #getMove(Game)}, timing the lookup as a
+	 * {@link FlightEvents.PolicyLookup} event, which is recorded if a flight recording is running. Agents call this
+	 * for one in {@link FlightEvents#SAMPLING} of their moves, see {@link Agent#getMove(Game)}.
+	 *
+	 * @param g
+	 * @return the move, or null if there is none
+	 */
+	public final Move lookup(Game g) {
+		FlightEvents.PolicyLookup event=new FlightEvents.PolicyLookup();
+		event.begin();
+		Move m=getMove(g);
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.policy=getClass().getSimpleName();
+			event.hash=g.hashCode();
+			event.found=m!=null;
+			event.commit();
+		}
+
+		return m;
+	}
+
+	/**
+	 * loads a policy from a file written by {@link #save(String)}. The file is memory mapped and {@link #getMove(Game)}
+	 * reads the moves straight from the mapping, so loading takes a few microseconds and the moves don't take any heap.
+	 *
 	 * @param file
+	 * @throws UncheckedIOException if the file can't be read
+	 * @throws IllegalArgumentException if the file is not a valid policy file
 	 */
 	public Policy(String file)
 	{
-		/* implement this constructor to load a stored policy from file. */
-		
+		MappedByteBuffer buf;
+		try (FileChannel ch=FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			buf=ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read policy file "+file, e);
+		}
+
+		buf.order(ByteOrder.BIG_ENDIAN);
+		if (buf.capacity()<HEADER_SIZE || buf.getInt(0)!=MAGIC)
+			throw new IllegalArgumentException("Not a policy file: "+file);
+		if (buf.getShort(4)!=VERSION)
+			throw new IllegalArgumentException("Unsupported policy file version "+buf.getShort(4)+": "+file);
+
+		char side=(char) buf.get(6);
+		int count=buf.getInt(8);
+		if (side!='X' && side!='O')
+			throw new IllegalArgumentException("Invalid side to move '"+side+"': "+file);
+		if (count!=StateSpace.NUM_HASHES || buf.capacity()!=HEADER_SIZE+count)
+			throw new IllegalArgumentException("Truncated policy file: "+file);
+
+		CRC32 crc=new CRC32();
+		ByteBuffer body=buf.duplicate();
+		body.position(HEADER_SIZE);
+		crc.update(body);
+		if ((int) crc.getValue()!=buf.getInt(12))
+			throw new IllegalArgumentException("Checksum mismatch: "+file);
+
+		this.side=side;
+		this.moves=buf;
+	}
+
+	/**
+	 * Sets {@code body[h]} to the cell of the move in the game with hash {@code h}, for every game with a move.
+	 * @param body the move bytes of a policy file, all {@link #NO_MOVE}
+	 * @return the player of the moves, 'X' if there are none
+	 * @throws IllegalStateException if there are moves by both players
+	 */
+	char encode(byte[] body)
+	{
+		if (moves!=null)
+		{
+			ByteBuffer src=moves.duplicate();
+			src.position(HEADER_SIZE);
+			src.get(body);
+			return side;
+		}
+
+		char who=0;
+		for (Entry<Game, Move> e: policy.entrySet())
+		{
+			Move m=e.getValue();
+			if (who==0)
+				who=m.who.getName();
+			else if (m.who.getName()!=who)
+				throw new IllegalStateException("The policy has moves by both X and O");
+
+			body[e.getKey().hashCode()]=(byte) (3*m.x+m.y);
+		}
+
+		return who==0 ? 'X' : who;
 	}
 
-	
-	
-	
+	/**
+	 * Writes this policy to {@code file} in a compact binary format: a header (see {@link #HEADER_SIZE}), followed
+	 * by one byte per game hash, from 0 to {@link StateSpace#NUM_HASHES}-1, holding the cell {@code 3*x+y} of the move
+	 * in that game, or 0xFF if there is none. All moves of a policy must be by the same player.
+	 *
+	 * @param file
+	 * @throws UncheckedIOException if the file can't be written
+	 */
+	public void save(String file)
+	{
+		byte[] body=new byte[StateSpace.NUM_HASHES];
+		Arrays.fill(body, NO_MOVE);
+		char who=encode(body);
+
+		CRC32 crc=new CRC32();
+		crc.update(body);
+		ByteBuffer header=ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+		header.putInt(MAGIC).putShort(VERSION).put((byte) who).put((byte) 0).putInt(body.length).putInt((int) crc.getValue());
+		header.flip();
+
+		try (FileChannel ch=FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer[] bufs={header, ByteBuffer.wrap(body)};
+			while (bufs[1].hasRemaining())
+				ch.write(bufs);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write policy file "+file, e);
+		}
+	}
+
+
+
+
 
 }
@@ -1,9 +1,9 @@
 package ticTacToe;
 
 
-import java.util.Date;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Map;
 import java.util.Random;
 /**
  * A policy iteration agent. You should implement the following methods:
@@ -23,9 +23,10 @@ import java.util.Random;
 public class PolicyIterationAgent extends Agent {
 
 	/**
-	 * This map is used to store the values of states according to the current policy (policy evaluation). 
+	 * This is used to store the values of states according to the current policy (policy evaluation), in a {@code double[]}
+	 * indexed by {@link StateSpace} id. 
 	 */
-	HashMap<Game, Double> policyValues=new HashMap<Game, Double>();
+	ValueFunction policyValues=new ValueFunction();
 	
 	/**
 	 * This stores the current policy as a map from {@link Game}s to {@link Move}. 
@@ -75,6 +76,19 @@ public class PolicyIterationAgent extends Agent {
 		initRandomPolicy();
 		train();
 	}
+	/**
+	 * Use this constructor to train the agent in the given mode, see {@link TrainingMode}.
+	 * @param discountFactor
+	 * @param mode
+	 */
+	public PolicyIterationAgent(double discountFactor, TrainingMode mode) {
+		
+		this.discount=discountFactor;
+		this.mode=mode;
+		this.mdp=new TTTMDP();
+		train();
+	}
+	
 	/**
 	 * Use this constructor to set the various parameters of the Tic-Tac-Toe MDP
 	 * @param discountFactor
@@ -92,128 +106,155 @@ public class PolicyIterationAgent extends Agent {
 		train();
 	}
 	/**
-	 * Initialises the {@link #policyValues} map, and sets the initial value of all states to 0 
-	 * (V0 under some policy pi ({@link #curPolicy} from the lectures). Uses {@link Game#inverseHash} and {@link Game#generateAllValidGames(char)} to do this. 
+	 * Returns an agent that hasn't trained yet, with all values 0, a random policy and no agent policy. Unlike the other
+	 * constructors, which train at once, this lets options be set with the setters (e.g. 
+	 * {@link #setTrainingListener(TrainingListener)} or {@link #setSymmetric(boolean)}) before training once with 
+	 * {@link #train()}.
+	 * @param discountFactor
+	 * @return the untrained agent
+	 */
+	public static PolicyIterationAgent untrained(double discountFactor)
+	{
+		PolicyIterationAgent agent=new PolicyIterationAgent((Policy) null);
+		agent.discount=discountFactor;
+		agent.mdp=new TTTMDP();
+		agent.initValues();
+		agent.initRandomPolicy();
+		return agent;
+	}
+	
+	/**
+	 * Initialises the {@link #policyValues}, and sets the initial value of all states to 0 
+	 * (V0 under some policy pi ({@link #curPolicy} from the lectures). The states are all valid games where it is X's turn, 
+	 * or it's terminal, from the shared {@link StateSpace}.
 	 * 
 	 */
 	public void initValues()
 	{
-		List<Game> allGames=Game.generateAllValidGames('X');//all valid games where it is X's turn, or it's terminal.
-		for(Game g: allGames)
-			this.policyValues.put(g, 0.0);
+		this.policyValues=new ValueFunction();
 		
 	}
 	
 	/**
-	 *  You should implement this method to initially generate a random policy, i.e. fill the {@link #curPolicy} for every state. Take care that the moves you choose
-	 *  for each state ARE VALID. You can use the {@link Game#getPossibleMoves()} method to get a list of valid moves and choose 
-	 *  randomly between them. 
+	 *  Generates a random policy, i.e. fills the {@link #curPolicy} for every non-terminal state with a move chosen randomly
+	 *  between the valid moves of that state. 
 	 */
 	public void initRandomPolicy()
 	{
-		/*
-		 * YOUR CODE HERE
-		 */
-	    for (Game state : curPolicy.keySet()) {   // Iterate through all states
-	        if (!state.isTerminal()) {    // if not a terminal state
-	            List<Move> posMvs = state.getPossibleMoves();  // retrieve all moves from state 
-	            if (!posMvs.isEmpty()) {  //if move not empty
-	                int randomIndex = (int) (Math.random() * posMvs.size());  //Retrieve random move from index
-	                Move randomMove = posMvs.get(randomIndex);
-	                curPolicy.put(state, randomMove); // Assign the randomly chosen move to the state
-	            }
-	        }
-	    }
+		Random r=new Random();
+		StateSpace space=StateSpace.getInstance();
+		curPolicy.clear();
+		int[] ids=symmetric ? Symmetry.getInstance().canonicalIds(space.ids('X')) : space.ids('X');
+		for (int s : ids) {   // Iterate through all states, or one per class of symmetric states
+			int legal=space.legalMoves(s);
+			if (space.isTerminal(s) || legal==0)    // no moves in terminal states
+				continue;
+			
+			for (int n=r.nextInt(Integer.bitCount(legal)); n>0; n--)  // Retrieve random move
+				legal&=legal-1;
+			
+			int cell=Integer.numberOfTrailingZeros(legal);
+			curPolicy.put(space.game(s), new Move('X', cell/3, cell%3)); // Assign the randomly chosen move to the state
+		}
 	}
 	
-	private double calcVal(List<TransitionProb> tr) {
-		double val = 0.0;
-		
-		for(TransitionProb t : tr) {
-			val += t.prob * (t.outcome.localReward +(discount * policyValues.get(t.outcome.sPrime))); 
+	/**
+	 * @return for each state id, the row of the compiled MDP (see {@link CompiledMDP}) for the move of {@link #curPolicy} 
+	 * in that state; -1 for states without a move.
+	 */
+	private int[] policyRows(CompiledMDP model)
+	{
+		int[] rows=new int[model.space.size()];
+		Arrays.fill(rows, -1);
+		for (Map.Entry<Game, Move> e : curPolicy.entrySet()) {
+			int s=model.space.id(e.getKey());
+			Move m=e.getValue();
+			rows[s]=model.row(s, 3*m.x+m.y);
 		}
-		return val;
+		
+		return rows;
 	}
 	
-	private double calcStVal(Game state) {
-	    double stVal = 0.0;
-
-	    Move poMove = curPolicy.get(state);
-	    for (TransitionProb tr : mdp.generateTransitions(state, poMove)) {
-	        double tVal = tr.prob * (tr.outcome.localReward + discount * policyValues.getOrDefault(tr.outcome.sPrime, 0.0));
-	        stVal += tVal;
-	    }
-
-	    return stVal;
-	}
 	/**
 	 * Performs policy evaluation steps until the maximum change in values is less than {@code delta}, in other words
 	 * until the values under the currrent policy converge. After running this method, 
-	 * the {@link PolicyIterationAgent#policyValues} map should contain the values of each reachable state under the current policy. 
-	 * You should use the {@link TTTMDP} {@link PolicyIterationAgent#mdp} provided to do this.
+	 * the {@link PolicyIterationAgent#policyValues} should contain the values of each reachable state under the current policy. 
+	 * Uses the compiled form of the {@link TTTMDP} {@link PolicyIterationAgent#mdp}, see {@link TTTMDP#compile()}.
+	 * Each sweep is recorded as a {@link FlightEvents.Sweep} event when a flight recording is running.
 	 *
 	 * @param delta
+	 * @return the number of sweeps done
 	 */
-	protected void evaluatePolicy(double delta)
+	protected int evaluatePolicy(double delta)
 	{
-		/* YOUR CODE HERE */
-		boolean cVal = false; //initializing convergence value to false
-		while (!cVal) { // evaluating until convergence 
-		    double max = 0.0; //initializing maximum value 
-		    for (Game st : curPolicy.keySet()) {  // iterating through states of current policy 
-		        if (!st.isTerminal()) {   // if not a terminal state
-		            double prevVal = policyValues.getOrDefault(st, 0.0);	//Retrieving previous value of state	   
-		            double val = calcStVal(st);  //Calculating value of state
-		            policyValues.put(st, val);	// Updating policy with state and values 	           
-		            double eVal = Math.abs(val - prevVal); //calculating the evaluated value by subtracting the value from previous value
-		            if (eVal > max) { //Updating the maximum value if evaluated value is greater 
-		                max = eVal;
-		            }
-		        }
-		    }
-		    if (max <= delta) { //if maximum value is less than or equal to delta 
-		        cVal = true;  	// updating convergence as true
-		    }
-		}
+		CompiledMDP model=mdp.compile(symmetric);
+		double[] rewards=mdp.rewards();
+		double[] v=policyValues.values;
+		int[] rows=policyRows(model);
+		int[] ids=symmetric ? Symmetry.getInstance().canonicalIds(policyValues.domain()) : policyValues.domain();
+		
+		double max; // the maximum change in a sweep
+		int sweeps=0;
+		do {
+			FlightEvents.Sweep event=new FlightEvents.Sweep();
+			event.begin();
+			sweeps++;
+			max=0.0;
+			for (int s : ids) {
+				if (rows[s]<0)   // no move, e.g. a terminal state
+					continue;
+				
+				double val=model.backup(rows[s], rewards, discount, v);
+				max=Math.max(max, Math.abs(val-v[s]));
+				v[s]=val;
+			}
+			
+			event.end();
+			if (event.shouldCommit()) {
+				event.algorithm="policy evaluation";
+				event.iteration=sweeps;
+				event.states=ids.length;
+				event.residual=max;
+				event.commit();
+			}
+		} while (max>delta);
+		
+		return sweeps;
 	}
 		
 		
 	/**This method should be run AFTER the {@link PolicyIterationAgent#evaluatePolicy} train method to improve the current policy according to 
-	 * {@link PolicyIterationAgent#policyValues}. You will need to do a single step of expectimax from each game (state) key in {@link PolicyIterationAgent#curPolicy} 
-	 * to look for a move/action that potentially improves the current policy. 
+	 * {@link PolicyIterationAgent#policyValues}. It does a single step of expectimax from each game (state) key in {@link PolicyIterationAgent#curPolicy} 
+	 * to look for a move/action that improves the current policy. 
+	 * 
+	 * The number of states whose move changed is left in {@link #changedActions}.
 	 * 
 	 * @return true if the policy improved. Returns false if there was no improvement, i.e. the policy already returned the optimal actions.
 	 */
 	protected boolean improvePolicy()
 	{
-		/* YOUR CODE HERE */
-		boolean impPolicy = false;  // initializing the policy to be improved to false 
-		double max = 0.0 ; //initializing the maximum value and the value to be calculated to 0
-		double val = 0.0 ; 
+		CompiledMDP model=mdp.compile(symmetric);
+		double[] rewards=mdp.rewards();
+		double[] v=policyValues.values;
+		boolean impPolicy=false;
+		changedActions=0;
 		
-		for (Game st : policyValues.keySet()) // iterating through the game states in policy values
-		{
-			if(st.isTerminal())  //if state is terminal state 
-				continue;
-			else
-				max = Double.NEGATIVE_INFINITY;  // updating maximum value for non-terminal states 
+		for (Map.Entry<Game, Move> e : curPolicy.entrySet()) {
+			int s=model.space.id(e.getKey());
+			Move m=e.getValue();
+			double cur=model.backup(model.row(s, 3*m.x+m.y), rewards, discount, v);
 			
-			List<Move> pMoves = st.getPossibleMoves(); //assign the possible moves of state to variable 
-			
-			for(Move mv : pMoves) //iterate through moves
-			{
-				val = 0; // resetting value for each move 
-				List<TransitionProb> tr = mdp.generateTransitions(st, mv);  // Retrieving transition probabilities 
-				val += calcVal(tr); //Calculating the value 
-				if (val > max) //if value greater than maximum value 
-				{
-					max = val; //updating  maximum value as calculated value 
-					curPolicy.put(st, mv); // populating current policy with state and move 
-					impPolicy = true; //Updating the policy to be improved as true
-				}
+			int best=model.bestRow(s, rewards, discount, v);
+			// only switch on a strict improvement, so that ties can't make the policy cycle
+			if (model.backup(best, rewards, discount, v)>cur) {
+				int cell=model.action(best);
+				e.setValue(new Move('X', cell/3, cell%3));
+				impPolicy=true;
+				changedActions++;
 			}
 		}
-		return impPolicy; // return the policy improved.
+		
+		return impPolicy;
 	}
 	
 	
@@ -223,27 +264,103 @@ public class PolicyIterationAgent extends Agent {
 	 */
 	double delta=0.1;
 	
+	/**
+	 * whether {@link #train()} alternates policy evaluation and improvement or solves the MDP in one pass with the 
+	 * {@link RetrogradeSolver}
+	 */
+	TrainingMode mode=TrainingMode.ITERATIVE;
+	
+	/**
+	 * If true, {@link #train()} only evaluates and improves the policy in the canonical states of {@link Symmetry}, on the
+	 * symmetry-reduced model, so {@link #curPolicy} only holds canonical states and the agent's policy is a {@link SymmetricPolicy}.
+	 */
+	boolean symmetric=false;
+	
+	/**
+	 * the number of states whose move was changed by the last {@link #improvePolicy()}
+	 */
+	int changedActions=0;
+	
+	/**
+	 * gets a report after each evaluation and improvement step of {@link #train()}, see 
+	 * {@link TrainingListener#policyIteration}. Steps are only timed and measured when there is one.
+	 */
+	TrainingListener listener=null;
+	
+	/**
+	 * @param mode how the next {@link #train()} trains, see {@link #mode} and {@link #untrained(double)}
+	 */
+	public void setTrainingMode(TrainingMode mode)
+	{
+		this.mode=mode;
+	}
+	
+	/**
+	 * @param symmetric whether to train on the canonical states only, see {@link #symmetric}.
+	 * It only takes effect at the next {@link #train()}, see {@link #untrained(double)}.
+	 */
+	public void setSymmetric(boolean symmetric)
+	{
+		this.symmetric=symmetric;
+	}
+	
+	/**
+	 * @param listener gets a report after each evaluation and improvement step of the next {@link #train()}, see 
+	 * {@link #untrained(double)}, null for none
+	 */
+	public void setTrainingListener(TrainingListener listener)
+	{
+		this.listener=listener;
+	}
+	
 	/**
 	 * This method should perform policy evaluation and policy improvement steps until convergence (i.e. until the policy
 	 * no longer changes), and so uses your 
-	 * {@link PolicyIterationAgent#evaluatePolicy} and {@link PolicyIterationAgent#improvePolicy} methods.
+	 * {@link PolicyIterationAgent#evaluatePolicy} and {@link PolicyIterationAgent#improvePolicy} methods. In 
+	 * {@link TrainingMode#RETROGRADE} mode the optimal policy is instead computed directly by a {@link RetrogradeSolver}.
 	 */
 	public void train()
 	{
-		/* YOUR CODE HERE */
+		if (mode==TrainingMode.RETROGRADE)
+		{
+			RetrogradeSolver solver=new RetrogradeSolver(mdp, discount, symmetric);
+			solver.solve();
+			this.policyValues=solver.getValues();
+			this.curPolicy=solver.getPolicyMap();
+			policy = symmetric ? solver.getPolicy() : new DensePolicy(curPolicy);
+			return;
+		}
+		
 		initValues();		// Initialing state values
 		initRandomPolicy(); // Initializing random policy 
 		
-		do {				//iterating till convergence 
-			evaluatePolicy(delta);  //Initializing the evaluate policy			
-			HashMap<Game, Move> p = new HashMap<>(this.curPolicy);// Retrieving the current policy 
-			improvePolicy();   // improving the policy
-			if(curPolicy.equals(p) || !improvePolicy()) // if convergence or policy not improved break.
-				break;
-			
-		}while(true); //iterate until until condition fails  
-		policy = new Policy(); // Initializing new policy 
-		policy.policy = curPolicy; // updating current policy as new policy 
+		if (listener==null) {
+			do {				//iterating till the policy no longer changes
+				evaluatePolicy(delta);
+			} while (improvePolicy());
+		}
+		else {
+			boolean improved;
+			int iteration=0;
+			do {
+				long t0=System.nanoTime();
+				long bytes0=AllocationCounter.allocatedBytes();
+				int sweeps=evaluatePolicy(delta);
+				improved=improvePolicy();
+				listener.policyIteration(++iteration, sweeps, changedActions, System.nanoTime()-t0, AllocationCounter.since(bytes0));
+			} while (improved);
+		}
+		
+		if (symmetric) {
+			// carry the values and moves of the canonical states over to the symmetric ones
+			Symmetry.getInstance().expand(policyValues.values);
+			SymmetricPolicy p = new SymmetricPolicy('X');
+			for (Map.Entry<Game, Move> e : curPolicy.entrySet())
+				p.set(StateSpace.getInstance().id(e.getKey()), 3*e.getValue().x+e.getValue().y);
+			policy = p;
+		}
+		else
+			policy = new DensePolicy(curPolicy);
 		
 	}
 	
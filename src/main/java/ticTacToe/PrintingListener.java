@@ -0,0 +1,47 @@
+package ticTacToe;
+
+import java.io.PrintStream;
+
+/**
+ * A {@link GameListener} that pretty prints every move and the board after it, and the outcome, as
+ * {@link Game#playOut()} does.
+ */
+public class PrintingListener implements GameListener {
+
+	final PrintStream out;
+
+	public PrintingListener() {
+		this(System.out);
+	}
+
+	public PrintingListener(PrintStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Prints the move before it is played, so that a move that forfeits the game is printed too.
+	 */
+	@Override
+	public void moving(MNKGame g, Move m) {
+		out.println("Playing move: " + m);
+	}
+
+	@Override
+	public void moved(MNKGame g, Move m) {
+		out.println(g);
+	}
+
+	@Override
+	public void ended(MNKGame g, GameRunner.Result result) {
+		if (result.isForfeit())
+			return;
+
+		if (result.outcome == MNKGame.X_WON)
+			out.println("X won!");
+		else if (result.outcome == MNKGame.O_WON)
+			out.println("O won!");
+		else
+			out.println("It's a draw.");
+	}
+
+}
@@ -1,9 +1,6 @@
 package ticTacToe;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
@@ -31,7 +28,7 @@ public class QLearningAgent extends Agent {
 	/**
 	 * The number of episodes to train for
 	 */
-	int numEpisodes=10000;
+	int numEpisodes=100000;
 	
 	/**
 	 * The discount factor (gamma)
@@ -51,6 +48,52 @@ public class QLearningAgent extends Agent {
 	
 	QTable qTable=new QTable();
 	
+	/**
+	 * The random numbers of epsilon-greedy exploration and tie breaking when training against opponents other than the 
+	 * {@link RandomAgent}, see {@link #trainInEnvironment()}.
+	 */
+	final Random random=new Random();
+	
+	/**
+	 * The allocation-free trainer used when the opponent is a {@link RandomAgent}, see {@link #train()}. Null until then.
+	 */
+	QLearningTrainer trainer;
+	
+	/**
+	 * The number of threads that train against a random opponent. Above 1, {@link #train()} uses a 
+	 * {@link ParallelQLearningTrainer}, kept here, where the threads update the q-table without locks.
+	 */
+	int threads=1;
+	
+	ParallelQLearningTrainer parallelTrainer;
+	
+	/**
+	 * Experience replay, off while {@code replayCapacity} is 0: every transition is stored in a {@link ReplayBuffer} 
+	 * of this capacity, and after every move a minibatch of {@code replayBatch} stored transitions is replayed. 
+	 * See {@link #setReplay(int, int, boolean)}.
+	 */
+	int replayCapacity=0;
+	int replayBatch=32;
+	boolean prioritizedReplay=false;
+	
+	/**
+	 * The priority exponent of prioritized replay.
+	 */
+	static final double REPLAY_ALPHA=0.6;
+	
+	/**
+	 * If true, {@link #train()} learns into a symmetric {@link QTable}, where symmetric q-states share one q-value, and the 
+	 * policy is a {@link SymmetricPolicy}.
+	 */
+	boolean symmetric=false;
+	
+	/**
+	 * gets a report every {@code reportInterval} episodes of {@link #train()}, see {@link TrainingListener#episodes}. 
+	 * Nothing is timed or measured without one. With several {@link #threads}, each thread reports its own episodes.
+	 */
+	TrainingListener listener=null;
+	int reportInterval=10000;
+	
 	
 	/**
 	 * This is the Reinforcement Learning environment that this agent will interact with when it is training.
@@ -68,12 +111,47 @@ public class QLearningAgent extends Agent {
 	 */
 	public QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount)
 	{
+		this(opponent, learningRate, numEpisodes, discount, 1);
+	}
+	
+	/**
+	 * Construct a Q-Learning agent that learns from interactions with {@code opponent}, training with {@code threads} threads
+	 * when the opponent is a {@link RandomAgent}.
+	 * @param opponent the opponent agent that this Q-Learning agent will interact with to learn.
+	 * @param learningRate This is the rate at which the agent learns. Alpha from your lectures.
+	 * @param numEpisodes The number of episodes (games) to train for, in total over all threads
+	 * @param threads The number of training threads, at least 1
+	 */
+	public QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount, int threads)
+	{
+		this(opponent, learningRate, numEpisodes, discount, threads, true);
+	}
+	
+	private QLearningAgent(Agent opponent, double learningRate, int numEpisodes, double discount, int threads, boolean train)
+	{
+		if (threads<1)
+			throw new IllegalArgumentException("threads should be at least 1");
+		
 		env=new TTTEnvironment(opponent);
 		this.alpha=learningRate;
 		this.numEpisodes=numEpisodes;
 		this.discount=discount;
+		this.threads=threads;
 		initQTable();
-		train();
+		if (train)
+			train();
+	}
+	
+	/**
+	 * Returns an agent that hasn't trained yet, with all q-values 0 and no policy. Unlike the constructors, which train 
+	 * at once, this lets options be set with the setters (e.g. {@link #setTrainingListener(TrainingListener, int)}, 
+	 * {@link #setSymmetric(boolean)} or {@link #setReplay(int, int, boolean)}) before training once with {@link #train()}.
+	 * The parameters are those of {@link #QLearningAgent(Agent, double, int, double, int)}.
+	 * @return the untrained agent
+	 */
+	public static QLearningAgent untrained(Agent opponent, double learningRate, int numEpisodes, double discount, int threads)
+	{
+		return new QLearningAgent(opponent, learningRate, numEpisodes, discount, threads, false);
 	}
 	
 	/**
@@ -83,16 +161,11 @@ public class QLearningAgent extends Agent {
 	
 	protected void initQTable()
 	{
-		List<Game> allGames=Game.generateAllValidGames('X');//all valid games where it is X's turn, or it's terminal.
-		for(Game g: allGames)
+		StateSpace space=StateSpace.getInstance();
+		for(int id: space.ids('X'))//all valid games where it is X's turn, or it's terminal.
 		{
-			List<Move> moves=g.getPossibleMoves();
-			for(Move m: moves)
-			{
-				this.qTable.addQValue(g, m, 0.0);
-				//System.out.println("initing q value. Game:"+g);
-				//System.out.println("Move:"+m);
-			}
+			for(int moves=space.legalMoves(id); moves!=0; moves&=moves-1)
+				this.qTable.addQValue(id, Integer.numberOfTrailingZeros(moves), 0.0);
 			
 		}
 		
@@ -103,10 +176,62 @@ public class QLearningAgent extends Agent {
 	 */
 	public QLearningAgent()
 	{
-		this(new RandomAgent(), 0.1, 100, 0.9);
+		this(new RandomAgent(), 0.1, 100000, 0.9);
+		
+	}
+	
+	
+	/**
+	 * Sets up experience replay for the next call to {@link #train()}, see {@link #untrained}: each transition played is kept in a ring buffer 
+	 * of {@code capacity} transitions, and after every move {@code batchSize} of them, sampled uniformly or by priority, 
+	 * are replayed as q-learning updates.
+	 * @param capacity the number of transitions kept, 0 to turn replay off
+	 * @param batchSize the number of transitions replayed after every move
+	 * @param prioritized whether transitions are sampled in proportion to their last TD error
+	 */
+	public void setReplay(int capacity, int batchSize, boolean prioritized)
+	{
+		if (capacity<0 || batchSize<1)
+			throw new IllegalArgumentException("capacity should be at least 0 and batch size at least 1");
 		
+		this.replayCapacity=capacity;
+		this.replayBatch=batchSize;
+		this.prioritizedReplay=prioritized;
+	}
+	
+	/**
+	 * @param symmetric whether the next {@link #train()} uses a symmetric q-table, see {@link #symmetric} and 
+	 * {@link #untrained}
+	 */
+	public void setSymmetric(boolean symmetric)
+	{
+		this.symmetric=symmetric;
 	}
 	
+	/**
+	 * @param listener gets a report every {@code reportInterval} episodes of the next {@link #train()}, see 
+	 * {@link #untrained}, null for none. Must be thread safe when training with several threads.
+	 * @param reportInterval the number of episodes between reports
+	 */
+	public void setTrainingListener(TrainingListener listener, int reportInterval)
+	{
+		if (listener!=null && reportInterval<1)
+			throw new IllegalArgumentException("report interval should be at least 1");
+		
+		this.listener=listener;
+		this.reportInterval=reportInterval;
+	}
+	
+	/**
+	 * @return the episodes per second of the last {@link #train()} against a random opponent, 0 if there wasn't one.
+	 */
+	public double getEpisodesPerSecond()
+	{
+		if (parallelTrainer != null)
+			return parallelTrainer.getEpisodesPerSecond();
+		
+		return trainer == null ? 0.0 : trainer.getEpisodesPerSecond();
+	}
 	
 	/**
 	 *  Implement this method. It should play {@code this.numEpisodes} episodes of Tic-Tac-Toe with the TTTEnvironment, updating q-values according 
@@ -120,43 +245,99 @@ public class QLearningAgent extends Agent {
 	public void train()
 	{
 
-		/* 
-		 * YOUR CODE HERE
-		 */					
-		int totEp = numEpisodes * numEpisodes;  // calculating total training stages
+		if (qTable.isSymmetric()!=symmetric)
+			qTable=new QTable(symmetric);
 		initQTable();                           // initializing Qtable
+		
+		if (env.game.o.getClass() == RandomAgent.class && threads > 1) {
+			parallelTrainer = new ParallelQLearningTrainer(qTable, alpha, discount, epsilon, env.rewards(), threads, System.nanoTime());
+			if (replayCapacity > 0)
+				parallelTrainer.setReplay(replayCapacity, replayBatch, prioritizedReplay, REPLAY_ALPHA);
+			parallelTrainer.setTrainingListener(listener, reportInterval);
+			parallelTrainer.train(numEpisodes);
+		}
+		else if (env.game.o.getClass() == RandomAgent.class) {
+			// against a random opponent, episodes are stepped in place on state ids
+			trainer = new QLearningTrainer(qTable, alpha, discount, epsilon, env.rewards(), System.nanoTime());
+			if (replayCapacity > 0)
+				trainer.setReplay(newReplayBuffer(), replayBatch);
+			trainer.setTrainingListener(listener, reportInterval);
+			trainer.train(numEpisodes);
+		}
+		else {
+			trainInEnvironment();
+		}
 
-		for (int ep = 0; ep < totEp; ep++) { 	//Iterating over episodes
+		//--------------------------------------------------------
+		//you shouldn't need to delete the following lines of code.
+		this.policy=extractPolicy();
+		if (this.policy==null)
+		{
+			System.out.println("Unimplemented methods! First implement the train() & extractPolicy methods");
+			//System.exit(1);
+		}
+	}
+	
+	/**
+	 * Plays {@code this.numEpisodes} episodes through {@link #env}, updating q-values after every move. Used by {@link #train()}
+	 * for opponents other than the {@link RandomAgent}. Sampled episodes are recorded as {@link FlightEvents.Episode} events
+	 * when a flight recording is running.
+	 */
+	private void trainInEnvironment()
+	{
+		// replay updates between environment steps go through a trainer that shares the q-table
+		QLearningTrainer replayer = null;
+		if (replayCapacity > 0) {
+			replayer = new QLearningTrainer(qTable, alpha, discount, epsilon, env.rewards(), System.nanoTime());
+			replayer.setReplay(newReplayBuffer(), replayBatch);
+		}
+		
+		// progress since the last report, only tracked with a listener
+		double tdErrors = 0.0;
+		long updates = 0;
+		long t0 = 0;
+		long bytes0 = 0;
+		if (listener != null) {
+		    t0 = System.nanoTime();
+		    bytes0 = AllocationCounter.allocatedBytes();
+		}
+		
+		for (int ep = 0; ep < numEpisodes; ep++) { 	//Iterating over episodes
+		    FlightEvents.Episode event = null;		// one in FlightEvents.SAMPLING episodes is timed
+		    if ((ep & FlightEvents.SAMPLE_MASK) == 0) {
+		        event = new FlightEvents.Episode();
+		        event.begin();
+		    }
+		    
 		    Game curSt = env.game;				// initializing current state
+		    StateSpace space = qTable.space;
 
 		    while (!curSt.isTerminal()) {
-		        List<Move> posMv = curSt.getPossibleMoves(); //initializing the possible moves
-		        Move sMv = null;							 //initializing current move
+		        int curId = space.id(curSt);
+		        int posMv = space.legalMoves(curId); //initializing the possible moves, as a mask of cells
+		        int sCell;								 //initializing current move
 
-		        if (Math.random() < epsilon) {              // Exploration: choose a random action
-		            if (!posMv.isEmpty()) {
-		                int rIndex = new Random().nextInt(posMv.size());
-		                sMv = posMv.get(rIndex);
-		            }
+		        if (random.nextDouble() < epsilon) {              // Exploration: choose a random action
+		            sCell = nthCell(posMv, random.nextInt(Integer.bitCount(posMv)));
 		        } else {		            // Exploit: choose the action with the highest Q-value
 		            double maxQval = Double.NEGATIVE_INFINITY;  //initializing maximum q value
-		            List<Move> maxQmvs = new ArrayList<>();  //initializing list to store moves with maximum q values
+		            int ties = 0;  //the number of moves with the maximum q value so far, one of which is kept at random
+		            sCell = -1;
 
-		            for (Move mv : posMv) { //iterating through possible moves
-		                double qVal = qTable.getQValue(curSt, mv);  //initialize qvalue for move
+		            for (int mvs = posMv; mvs != 0; mvs &= mvs - 1) { //iterating through possible moves
+		                int mv = Integer.numberOfTrailingZeros(mvs);
+		                double qVal = qTable.getQValue(curId, mv);  //initialize qvalue for move
 
 		                if (qVal > maxQval) {	// comparing if qvalue is greater than maximum value
 		                    maxQval = qVal;
-		                    maxQmvs.clear();
-		                    maxQmvs.add(mv);	
-		                } else if (qVal == maxQval) {
-		                    maxQmvs.add(mv);
+		                    sCell = mv;
+		                    ties = 1;
+		                } else if (qVal == maxQval && random.nextInt(++ties) == 0) {
+		                    sCell = mv;
 		                }
 		            }
-
-		            int randIndex = new Random().nextInt(maxQmvs.size());  //generating random index
-		            sMv = maxQmvs.get(randIndex);				//initializing move with highest-qvalue randomly
 		        }
+		        Move sMv = Move.of(curSt.getWhoseTurn().getName(), sCell);
 
 		        Outcome otC = null;		//initializing output
 		        try {
@@ -165,14 +346,13 @@ public class QLearningAgent extends Agent {
 		            err.printStackTrace();
 		        }
 
-		        Game srcSt = otC.s;			//source of output
 		        Game trgSt = otC.sPrime;	//target of output
 
-		        List<Move> trgPosMoves = trgSt.getPossibleMoves(); //initializing list to store possible moves in target
+		        int trgId = space.id(trgSt);
 		        double maxTrgQVal = Double.NEGATIVE_INFINITY;		//initializing maximum qvalue in target
 
-		        for (Move trgMv : trgPosMoves) {  //iterating through possible moves
-		            double trgQVal = qTable.getQValue(trgSt, trgMv); //initializing qvalue of move
+		        for (int mvs = space.legalMoves(trgId); mvs != 0; mvs &= mvs - 1) {  //iterating through possible moves
+		            double trgQVal = qTable.getQValue(trgId, Integer.numberOfTrailingZeros(mvs)); //initializing qvalue of move
 		            if (trgQVal > maxTrgQVal) { //updating maximum value if qvalue is greater
 		                maxTrgQVal = trgQVal;
 		            }
@@ -182,25 +362,62 @@ public class QLearningAgent extends Agent {
 		            maxTrgQVal = 0.0;
 		        }
 
-		        double nQVal = (((1-alpha)*(qTable.getQValue(srcSt, sMv)))+(alpha*((otC.localReward)+(discount*maxTrgQVal))));  //calculating new qvalue
+		        double srcQVal = qTable.getQValue(curId, sCell);
+		        double nQVal = (((1-alpha)*srcQVal)+(alpha*((otC.localReward)+(discount*maxTrgQVal))));  //calculating new qvalue
+		        
+		        if (listener != null) {  //TD error of this update
+		            tdErrors += Math.abs(otC.localReward+discount*maxTrgQVal-srcQVal);
+		            updates++;
+		        }
 
-		        qTable.addQValue(srcSt, sMv, nQVal);  //updating qvalue
+		        qTable.addQValue(curId, sCell, nQVal);  //updating qvalue
+		        
+		        if (replayer != null) {  //storing the transition and replaying a minibatch
+		            replayer.remember(curId, sCell, otC.localReward, trgId, trgSt.isTerminal());
+		        }
 		        curSt = otC.sPrime;
 		    }
 
 		    env.reset();
-		}
-
-		//--------------------------------------------------------
-		//you shouldn't need to delete the following lines of code.
-		this.policy=extractPolicy();
-		if (this.policy==null)
-		{
-			System.out.println("Unimplemented methods! First implement the train() & extractPolicy methods");
-			//System.exit(1);
+		    
+		    if (event != null) {
+		        event.end();
+		        if (event.shouldCommit()) {
+		            event.episode = ep;
+		            event.epsilon = epsilon;
+		            event.commit();
+		        }
+		    }
+		    
+		    if (listener != null && ((ep+1) % reportInterval == 0 || ep+1 == numEpisodes)) {  //reporting progress
+		        long t = System.nanoTime() - t0;
+		        int block = (ep % reportInterval) + 1;
+		        listener.episodes(ep+1, t == 0 ? 0.0 : block*1e9/t, updates == 0 ? 0.0 : tdErrors/updates, epsilon, 
+		                AllocationCounter.since(bytes0));
+		        tdErrors = 0.0;
+		        updates = 0;
+		        t0 = System.nanoTime();
+		        bytes0 = AllocationCounter.allocatedBytes();
+		    }
 		}
 	}
 	
+	/**
+	 * @return the {@code n}-th cell, from 0, of the mask {@code cells}
+	 */
+	private static int nthCell(int cells, int n)
+	{
+		for (; n>0; n--)
+			cells&=cells-1;
+		
+		return Integer.numberOfTrailingZeros(cells);
+	}
+	
+	private ReplayBuffer newReplayBuffer()
+	{
+		return new ReplayBuffer(replayCapacity, prioritizedReplay, REPLAY_ALPHA);
+	}
+	
 	/** Implement this method. It should use the q-values in the {@code qTable} to extract a policy and return it.
 	 *
 	 * @return the policy currently inherent in the QTable
@@ -210,16 +427,19 @@ public class QLearningAgent extends Agent {
 		/* 
 		 * YOUR CODE HERE
 		 */	
-	    Policy exPol = new Policy();			// Initializing policy object
+	    StateSpace space=qTable.space;
+	    boolean sym=qTable.isSymmetric();
+	    DensePolicy exPol = sym ? null : new DensePolicy('X', false);	// Initializing policy object, one move byte per game hash
+	    SymmetricPolicy symPol = sym ? new SymmetricPolicy('X') : null;	// or one move per class of symmetric states
+	    int[] ids = sym ? Symmetry.getInstance().canonicalIds(space.ids('X')) : space.ids('X');
 	    
-	    for (Game state : qTable.keySet()) {		// Iterating through states from Qtable 
-	        HashMap<Move, Double> aVal = qTable.get(state); // assigning move and qValue of state to variable
-
-	        Move bMove = null;					//Initializing best Move 
+	    for (int state : ids) {		// Iterating through states 
+	        int bMove = -1;					//Initializing best Move 
 	        double bVal = Double.NEGATIVE_INFINITY;		//Initializing best value 
 
-	        for(Move mv : aVal.keySet()) {  //Iterating through moves of the variable
-	            double val = aVal.get(mv);// assigning vale from move 
+	        for(int moves=space.legalMoves(state); moves!=0; moves&=moves-1) {  //Iterating through the moves of the state
+	            int mv=Integer.numberOfTrailingZeros(moves);
+	            double val = qTable.getQValue(state, mv);// assigning vale from move 
 
 	            if (val > bVal)  { 	// if value is greater than best value 
 	                bVal = val;  	// Updating best value as calculated value 
@@ -227,12 +447,15 @@ public class QLearningAgent extends Agent {
 	            }
 	        }
 
-        if (bMove != null) {  	// if best move not null
-	            exPol.policy.put(state, bMove); 	// updating policy with state and best move 
+	        if (bMove >= 0) {  	// if best move not null
+	            if (sym)
+	                symPol.set(state, bMove);
+	            else
+	                exPol.set(space.hash(state), bMove); 	// updating policy with state and best move 
 	        }
 	    }
 
-	    return exPol; // return policy 
+	    return sym ? symPol : exPol; // return policy 
 
 	}
 	
@@ -0,0 +1,322 @@
+package ticTacToe;
+
+import java.util.SplittableRandom;
+
+/**
+ * Runs Q-Learning episodes against a random opponent directly on {@link StateSpace} ids, updating a {@link QTable} in
+ * place. This does the same as the {@link TTTEnvironment} based loop in {@link QLearningAgent#train()} with a
+ * {@link RandomAgent} opponent, but an episode step is a few array reads and writes: the trainer doesn't create any
+ * objects once constructed, and draws all its random numbers (exploration, tie breaks, the opponent's moves) from its
+ * own {@link SplittableRandom}.
+ *
+ * The trainer plays X and the opponent O, as in {@link TTTEnvironment}. The q-table must hold a value for every legal
+ * move of every state where it's X's turn, e.g. as set by {@link QLearningAgent#initQTable()}. With a symmetric
+ * q-table (see {@link QTable#QTable(boolean)}), updates go to the canonical q-state, so what is learned in one state is
+ * learned in all the states symmetric to it.
+ */
+public class QLearningTrainer {
+
+	final StateSpace space;
+
+	final QTable qTable;
+
+	double alpha;
+
+	double discount;
+
+	double epsilon;
+
+	/**
+	 * rewards indexed by {@link CompiledMDP#WIN}, {@link CompiledMDP#LOSE}, {@link CompiledMDP#LIVING} and
+	 * {@link CompiledMDP#DRAW}
+	 */
+	final double[] rewards;
+
+	final SplittableRandom random;
+
+	/**
+	 * the id of the empty board with X to move, where every episode starts
+	 */
+	final int start;
+
+	/**
+	 * the number of episodes played and the time spent playing them, over all calls to {@link #train(long)}
+	 */
+	long episodes;
+	long nanos;
+
+	/**
+	 * the number of calls to {@link #playEpisode()}, counting towards the sampling of {@link FlightEvents.Episode}
+	 * events
+	 */
+	long sampled;
+
+	/**
+	 * the replay buffer every transition is stored in, null when not replaying, and the size of the minibatch replayed
+	 * after every move. The minibatch arrays are allocated once in {@link #setReplay}.
+	 */
+	ReplayBuffer replay;
+	int replayBatch;
+	int[] slots;
+	double[] weights;
+
+	/**
+	 * how much prioritized replay updates are corrected for their sampling bias, see
+	 * {@link ReplayBuffer#sample(int, SplittableRandom, double, int[], double[])}
+	 */
+	double beta = 0.4;
+
+	/**
+	 * gets a report every {@code reportInterval} episodes, see {@link TrainingListener#episodes}, null for none. The
+	 * TD errors of the q-learning updates (not of replayed ones) are only summed up when there is a listener.
+	 */
+	TrainingListener listener;
+	long reportInterval;
+	double tdErrors;
+	long updates;
+
+	/**
+	 * @param qTable   the table to update
+	 * @param alpha    the learning rate
+	 * @param discount the discount factor
+	 * @param epsilon  the probability of exploring
+	 * @param rewards  the rewards, indexed as in {@link CompiledMDP}
+	 * @param seed     the seed of the trainer's random numbers
+	 * @throws IllegalArgumentException if there aren't {@link CompiledMDP#REWARDS} rewards
+	 */
+	public QLearningTrainer(QTable qTable, double alpha, double discount, double epsilon, double[] rewards, long seed) {
+		if (rewards.length != CompiledMDP.REWARDS)
+			throw new IllegalArgumentException(
+					"There should be " + CompiledMDP.REWARDS + " rewards, not " + rewards.length);
+
+		this.space = qTable.space;
+		this.qTable = qTable;
+		this.alpha = alpha;
+		this.discount = discount;
+		this.epsilon = epsilon;
+		this.rewards = rewards.clone();
+		this.random = new SplittableRandom(seed);
+		this.start = space.id(new Game().hashCode());
+	}
+
+	/**
+	 * Turns on experience replay: every transition played is stored in {@code buffer}, and after every move, once the
+	 * buffer holds at least {@code batchSize} transitions, a minibatch of them is sampled and replayed as q-learning
+	 * updates. If the buffer is prioritized, replayed transitions get their absolute TD error as their new priority.
+	 *
+	 * @param buffer    the buffer, or null to turn replay off
+	 * @param batchSize the number of transitions replayed after every move
+	 */
+	public void setReplay(ReplayBuffer buffer, int batchSize) {
+		if (buffer != null && batchSize < 1)
+			throw new IllegalArgumentException("batch size should be at least 1");
+
+		this.replay = buffer;
+		this.replayBatch = batchSize;
+		this.slots = buffer == null ? null : new int[batchSize];
+		this.weights = buffer == null ? null : new double[batchSize];
+	}
+
+	/**
+	 * Reports progress to {@code listener} every {@code interval} episodes of {@link #train(long)}, and at the end of
+	 * each call.
+	 *
+	 * @param listener the listener, or null for none
+	 * @param interval the number of episodes between reports
+	 */
+	public void setTrainingListener(TrainingListener listener, long interval) {
+		if (listener != null && interval < 1)
+			throw new IllegalArgumentException("report interval should be at least 1");
+
+		this.listener = listener;
+		this.reportInterval = interval;
+	}
+
+	/**
+	 * Plays {@code numEpisodes} episodes, updating the q-table after every move.
+	 */
+	public void train(long numEpisodes) {
+		if (listener != null) {
+			trainReporting(numEpisodes);
+			return;
+		}
+
+		long t0 = System.nanoTime();
+		for (long ep = 0; ep < numEpisodes; ep++)
+			playEpisode();
+
+		nanos += System.nanoTime() - t0;
+		episodes += numEpisodes;
+	}
+
+	/**
+	 * Plays {@code numEpisodes} episodes in blocks of {@link #reportInterval}, reporting to the {@link #listener} after
+	 * each block.
+	 */
+	private void trainReporting(long numEpisodes) {
+		for (long done = 0; done < numEpisodes;) {
+			long block = Math.min(reportInterval, numEpisodes - done);
+			tdErrors = 0.0;
+			updates = 0;
+			long bytes0 = AllocationCounter.allocatedBytes();
+			long t0 = System.nanoTime();
+			for (long ep = 0; ep < block; ep++)
+				playEpisode();
+
+			long t = System.nanoTime() - t0;
+			nanos += t;
+			episodes += block;
+			done += block;
+			listener.episodes(episodes, t == 0 ? 0.0 : block * 1e9 / t, updates == 0 ? 0.0 : tdErrors / updates,
+					epsilon, AllocationCounter.since(bytes0));
+		}
+	}
+
+	/**
+	 * Plays one episode from the empty board to the end of the game. One in {@link FlightEvents#SAMPLING} episodes is
+	 * timed, and recorded as a {@link FlightEvents.Episode} event if a flight recording is running.
+	 */
+	void playEpisode() {
+		if ((++sampled & FlightEvents.SAMPLE_MASK) != 0) {
+			episode();
+			return;
+		}
+
+		FlightEvents.Episode event = new FlightEvents.Episode();
+		event.begin();
+		episode();
+		event.end();
+		if (event.shouldCommit()) {
+			event.episode = episodes;
+			event.epsilon = epsilon;
+			event.commit();
+		}
+	}
+
+	private void episode() {
+		final double[] q = qTable.q;
+		int s = start;
+		while (true) {
+			int legal = space.legalMoves[s];
+			int a = (random.nextDouble() < epsilon) ? randomCell(legal) : greedyCell(q, s, legal);
+
+			double r;
+			int next = space.successors[9 * s + a];
+			if (space.isTerminal(next)) {
+				// X won or drew with this move
+				r = rewards[space.result[next] == Game.X_WON ? CompiledMDP.WIN : CompiledMDP.DRAW];
+			} else {
+				// the opponent's move
+				next = space.successors[9 * next + randomCell(space.legalMoves[next])];
+				if (space.result[next] == Game.O_WON)
+					r = rewards[CompiledMDP.LOSE];
+				else if (space.result[next] == Game.DRAW)
+					r = rewards[CompiledMDP.DRAW];
+				else
+					r = rewards[CompiledMDP.LIVING];
+			}
+
+			boolean done = space.isTerminal(next);
+			double target = done ? r : r + discount * maxQ(q, next, space.legalMoves[next]);
+			int i = qTable.index(s, a);
+			if (listener != null) {
+				tdErrors += Math.abs(target - q[i]);
+				updates++;
+			}
+			q[i] = (1 - alpha) * q[i] + alpha * target;
+
+			if (replay != null)
+				remember(s, a, r, next, done);
+
+			if (done)
+				return;
+
+			s = next;
+		}
+	}
+
+	/**
+	 * Stores a transition in the replay buffer, and replays a minibatch once the buffer holds enough transitions. The
+	 * states are {@link StateSpace} ids where it's X's turn, or terminal.
+	 */
+	void remember(int s, int a, double r, int next, boolean done) {
+		replay.add(s, a, r, next, done);
+		if (replay.size() >= replayBatch)
+			replayMinibatch(qTable.q);
+	}
+
+	/**
+	 * Samples a minibatch from the replay buffer and applies a q-learning update for each of its transitions, scaled
+	 * by its importance sampling weight.
+	 */
+	void replayMinibatch(double[] q) {
+		final ReplayBuffer buffer = replay;
+		buffer.sample(replayBatch, random, beta, slots, weights);
+		for (int k = 0; k < replayBatch; k++) {
+			int slot = slots[k];
+			int next = buffer.nextStates[slot];
+			double target = buffer.dones[slot] ? buffer.rewards[slot]
+					: buffer.rewards[slot] + discount * maxQ(q, next, space.legalMoves[next]);
+			int i = qTable.index(buffer.states[slot], buffer.actions[slot]);
+			double error = target - q[i];
+			q[i] += alpha * weights[k] * error;
+			buffer.updatePriority(slot, Math.abs(error));
+		}
+	}
+
+	/**
+	 * @return a cell chosen uniformly from the non-empty mask {@code cells}
+	 */
+	int randomCell(int cells) {
+		for (int n = random.nextInt(Integer.bitCount(cells)); n > 0; n--)
+			cells &= cells - 1;
+
+		return Integer.numberOfTrailingZeros(cells);
+	}
+
+	/**
+	 * @return the cell among {@code legal} with the highest q-value in state {@code s}, ties broken uniformly at random
+	 */
+	int greedyCell(double[] q, int s, int legal) {
+		int best = -1;
+		int ties = 0;
+		double max = Double.NEGATIVE_INFINITY;
+		for (; legal != 0; legal &= legal - 1) {
+			int c = Integer.numberOfTrailingZeros(legal);
+			double v = q[qTable.index(s, c)];
+			if (v > max) {
+				max = v;
+				best = c;
+				ties = 1;
+			} else if (v == max && random.nextInt(++ties) == 0) {
+				// reservoir sampling keeps each tied cell with equal probability
+				best = c;
+			}
+		}
+
+		return best;
+	}
+
+	double maxQ(double[] q, int s, int legal) {
+		double max = Double.NEGATIVE_INFINITY;
+		for (; legal != 0; legal &= legal - 1)
+			max = Math.max(max, q[qTable.index(s, Integer.numberOfTrailingZeros(legal))]);
+
+		return max;
+	}
+
+	/**
+	 * @return the number of episodes played so far
+	 */
+	public long getEpisodes() {
+		return episodes;
+	}
+
+	/**
+	 * @return the average number of episodes played per second so far
+	 */
+	public double getEpisodesPerSecond() {
+		return nanos == 0 ? 0.0 : episodes * 1e9 / nanos;
+	}
+
+}
@@ -1,59 +1,152 @@
 package ticTacToe;
 
-import java.util.HashMap;
+import java.util.Arrays;
 /**
- * This class a simple implementation of a Q-Table. It's a subclass of {@link java.util.HashMap}, so all the methods from 
- * that class are available. Two methods for adding and retrieving q-values to/from the table are provided.
- * 
+ * This class a simple implementation of a Q-Table, backed by one flat {@code double[]}. The q-value of the q-state
+ * (s, c), where s is a {@link StateSpace} id and c the cell {@code 3*x+y} of a move, is stored at index {@code 9*s+c}.
+ *
+ * Q-values can be read and written with primitive state ids and cells, or, through the original methods, with
+ * {@link Game} and {@link Move} objects. Entries that have never been set are absent from the table.
+ *
+ * A symmetric table (see {@link Symmetry}) only stores the q-values of canonical states: the q-value of (s, c) is
+ * that of the canonical state of s and the cell c is mapped to, at index {@code 9*k+c'} where k is the class of s.
+ * It is about 8 times smaller, and every q-state shares its value with all the symmetric q-states.
+ *
  * @author ae187
  *
  */
-public class QTable extends HashMap<Game, HashMap<Move,Double>> {
+public class QTable {
+
+	final StateSpace space;
 
+	/**
+	 * {@code q[index(s,c)]} is Q(s,c). Absent entries are NaN.
+	 */
+	final double[] q;
 	
+	/**
+	 * the symmetries q-states are reduced by, null for a full table
+	 */
+	final Symmetry symmetry;
+
 	public QTable()
 	{
-		super();
+		this(false);
 	}
 	
 	/**
-	 * 
+	 * @param symmetric whether to store only the q-values of canonical states
 	 */
-	private static final long serialVersionUID = 1L;
+	public QTable(boolean symmetric)
+	{
+		this.space=StateSpace.getInstance();
+		this.symmetry=symmetric ? Symmetry.getInstance() : null;
+		this.q=new double[9*(symmetric ? symmetry.classes() : space.size())];
+		Arrays.fill(q, Double.NaN);
+	}
 	
 	/**
-	 * 
-	 * @param g
-	 * @param m
-	 * @return the q value associated with the q-state {@code (g,m)}, where game is a {@link Game} object 
-	 * and m is a {@link Move} object}
+	 * @return the index in {@link #q} of the q-state {@code (state,cell)}
 	 */
-	public Double getQValue(Game g, Move m)
+	final int index(int state, int cell)
 	{
-		if (containsKey(g))
-		{
-			HashMap<Move,Double> moves=get(g);
-			if (moves.containsKey(m))
-				return moves.get(m);
-		}
+		if (symmetry==null)
+			return 9*state+cell;
 		
-		return null;
+		return 9*symmetry.classOf[state]+Symmetry.CELLS[symmetry.transform[state]][cell];
 	}
 	
+	public boolean isSymmetric()
+	{
+		return symmetry!=null;
+	}
+
+	/**
+	 * @param state a {@link StateSpace} id
+	 * @param cell the cell {@code 3*x+y} of the move
+	 * @return the q value of the q-state {@code (state,cell)}, NaN if it is not in the table
+	 */
+	public double getQValue(int state, int cell)
+	{
+		return q[index(state, cell)];
+	}
+
+	/**
+	 * Adds the q-value mapping (state,cell)->v to the table.
+	 * @param state a {@link StateSpace} id
+	 * @param cell the cell {@code 3*x+y} of the move
+	 * @param v
+	 */
+	public void addQValue(int state, int cell, double v)
+	{
+		q[index(state, cell)]=v;
+	}
+
 	/**
-	 * Adds the q-value mapping (g,m)->v to the q-table represented by this map.
+	 *
 	 * @param g
 	 * @param m
+	 * @return the q value associated with the q-state {@code (g,m)}, where game is a {@link Game} object
+	 * and m is a {@link Move} object}, or null if it is not in the table.
+	 */
+	public Double getQValue(Game g, Move m)
+	{
+		int s=space.id(g);
+		if (s<0)
+			return null;
+
+		double v=q[index(s, 3*m.x+m.y)];
+		return Double.isNaN(v)?null:v;
+	}
+
+	/**
+	 * Adds the q-value mapping (g,m)->v to the q-table.
+	 * @param g a valid game, see {@link Game#isValid()}
+	 * @param m
 	 * @param v
 	 */
 	public void addQValue(Game g, Move m, Double v)
 	{
-		if (!containsKey(g))
-			this.put(g, new HashMap<Move,Double>());
-		
-		this.get(g).put(m, v);
+		int s=space.id(g);
+		if (s<0)
+			throw new IllegalArgumentException("Not a valid game:"+g);
+
+		q[index(s, 3*m.x+m.y)]=v;
 	}
 	
-	
+	/**
+	 * The greedy policy of the table, as rows of a compiled MDP, e.g. to evaluate it exactly with 
+	 * {@link RetrogradeSolver#evaluate(int[])}.
+	 * @param model the model the rows are of, see {@link TTTMDP#compile()}
+	 * @return for each state id, the row of {@code model} of the move with the highest q-value, -1 for states without 
+	 * moves
+	 */
+	public int[] greedyRows(CompiledMDP model)
+	{
+		int[] rows=new int[space.size()];
+		for (int s=0; s<rows.length; s++)
+		{
+			rows[s]=-1;
+			if (!model.hasActions(s))
+				continue;
+			
+			int best=-1;
+			double max=Double.NEGATIVE_INFINITY;
+			for (int moves=space.legalMoves(s); moves!=0; moves&=moves-1)
+			{
+				int c=Integer.numberOfTrailingZeros(moves);
+				if (getQValue(s, c)>max)
+				{
+					max=getQValue(s, c);
+					best=c;
+				}
+			}
+			rows[s]=model.row(s, best);
+		}
+		
+		return rows;
+	}
+
+
 
 }
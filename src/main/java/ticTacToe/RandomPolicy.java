@@ -1,8 +1,6 @@
 package ticTacToe;
 
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -18,19 +16,15 @@ public class RandomPolicy extends Policy{
 	public Move getMove(Game g) {
 		
 		
-		List<IndexPair> pairs=new ArrayList<IndexPair>();
+		int empty=g.emptyCells();
 		
-		for(int i=0;i<3;i++)
-			for(int j=0;j<3;j++)
-			{
-				if (g.getBoard()[i][j]==' ')
-					pairs.add(new IndexPair(i,j));
-					
-			}
+		//pick the n-th empty cell, n chosen uniformly
+		for(int n=r.nextInt(Integer.bitCount(empty));n>0;n--)
+			empty&=empty-1;
 		
-		IndexPair random=pairs.get(r.nextInt(pairs.size()));
+		int cell=Integer.numberOfTrailingZeros(empty);
 		
-		return new Move(g.whoseTurn, random.x, random.y);
+		return Move.of(g.getWhoseTurn().getName(), cell);
 	}
 	
 	
@@ -38,15 +32,3 @@ public class RandomPolicy extends Policy{
 
 }
 
-
-class IndexPair{
-	
-	public int x;
-	public int y;
-	
-	IndexPair(int x, int y)
-	{
-		this.x=x;
-		this.y=y;
-	}
-}
\ No newline at end of file
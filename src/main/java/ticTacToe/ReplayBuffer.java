@@ -0,0 +1,195 @@
+package ticTacToe;
+
+import java.util.SplittableRandom;
+
+/**
+ * A fixed-capacity experience replay buffer of (s, a, r, s', done) transitions, where s and s' are {@link StateSpace}
+ * ids and a the cell played. Transitions are stored in a ring of parallel primitive arrays: once full, each new
+ * transition overwrites the oldest.
+ *
+ * Minibatches are sampled either uniformly, or, for a prioritized buffer, with probability proportional to
+ * {@code priority^alpha}, where the priority of a transition is the absolute TD error of its last update (new
+ * transitions get the highest priority seen so far, so they are replayed at least once). Prioritized sampling uses a
+ * sum tree over the ring slots, so adding, sampling and updating a priority each take O(log capacity).
+ */
+public class ReplayBuffer {
+
+	final int capacity;
+
+	final int[] states;
+	final byte[] actions;
+	final double[] rewards;
+	final int[] nextStates;
+	final boolean[] dones;
+
+	/**
+	 * the number of transitions stored, and the slot the next one goes into
+	 */
+	int size;
+	int next;
+
+	final boolean prioritized;
+
+	/**
+	 * the exponent applied to priorities, 0 being uniform sampling
+	 */
+	final double alpha;
+
+	/**
+	 * For a prioritized buffer, a sum tree: {@code tree[capacity+i]} is {@code priority^alpha} of slot {@code i}, and
+	 * every other node {@code j} is the sum {@code tree[2j]+tree[2j+1]}, so {@code tree[1]} is the total. Null for a
+	 * uniform buffer.
+	 */
+	final double[] tree;
+
+	double maxPriority = 1.0;
+
+	/**
+	 * A buffer sampled uniformly.
+	 */
+	public ReplayBuffer(int capacity) {
+		this(capacity, false, 0.0);
+	}
+
+	/**
+	 * @param capacity    the maximum number of transitions kept
+	 * @param prioritized whether to sample in proportion to priorities
+	 * @param alpha       the priority exponent, typically 0.6
+	 */
+	public ReplayBuffer(int capacity, boolean prioritized, double alpha) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity should be at least 1");
+
+		this.capacity = capacity;
+		this.states = new int[capacity];
+		this.actions = new byte[capacity];
+		this.rewards = new double[capacity];
+		this.nextStates = new int[capacity];
+		this.dones = new boolean[capacity];
+		this.prioritized = prioritized;
+		this.alpha = alpha;
+		this.tree = prioritized ? new double[2 * capacity] : null;
+	}
+
+	/**
+	 * @return the number of transitions stored
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Adds a transition, overwriting the oldest one if the buffer is full.
+	 */
+	public void add(int s, int a, double r, int sPrime, boolean done) {
+		int i = next;
+		states[i] = s;
+		actions[i] = (byte) a;
+		rewards[i] = r;
+		nextStates[i] = sPrime;
+		dones[i] = done;
+		if (prioritized)
+			setLeaf(i, Math.pow(maxPriority, alpha));
+
+		next = (next + 1) % capacity;
+		if (size < capacity)
+			size++;
+	}
+
+	/**
+	 * Samples {@code n} slots (with replacement) into {@code slots}, and their importance sampling weights into
+	 * {@code weights}: {@code (size * P(slot))^-beta}, divided by the largest weight of the batch. For a uniform buffer
+	 * all weights are 1. The transitions can then be read with {@link #state}, {@link #action}, {@link #reward},
+	 * {@link #nextState} and {@link #done}.
+	 *
+	 * @param beta how much to correct for the prioritized sampling, from 0 (none) to 1 (fully)
+	 */
+	public void sample(int n, SplittableRandom random, double beta, int[] slots, double[] weights) {
+		if (size == 0)
+			throw new IllegalStateException("Sampling from an empty replay buffer");
+
+		if (!prioritized) {
+			for (int k = 0; k < n; k++) {
+				slots[k] = random.nextInt(size);
+				weights[k] = 1.0;
+			}
+			return;
+		}
+
+		double total = tree[1];
+		double maxWeight = 0.0;
+		for (int k = 0; k < n; k++) {
+			int slot = find(random.nextDouble() * total);
+			slots[k] = slot;
+			weights[k] = Math.pow(size * tree[capacity + slot] / total, -beta);
+			maxWeight = Math.max(maxWeight, weights[k]);
+		}
+		for (int k = 0; k < n; k++)
+			weights[k] /= maxWeight;
+	}
+
+	/**
+	 * Sets the priority of a sampled slot, typically to the absolute TD error of its last update. Does nothing for a
+	 * uniform buffer.
+	 */
+	public void updatePriority(int slot, double priority) {
+		if (!prioritized)
+			return;
+
+		// keep priorities positive, so every transition can still be sampled
+		priority = Math.max(priority, 1e-6);
+		maxPriority = Math.max(maxPriority, priority);
+		setLeaf(slot, Math.pow(priority, alpha));
+	}
+
+	private void setLeaf(int slot, double value) {
+		int j = capacity + slot;
+		double delta = value - tree[j];
+		for (; j >= 1; j >>= 1)
+			tree[j] += delta;
+	}
+
+	/**
+	 * @return the slot whose range of the cumulative priorities contains {@code u}, for {@code 0 <= u < tree[1]}
+	 */
+	private int find(double u) {
+		int j = 1;
+		while (j < capacity) {
+			if (u < tree[2 * j]) {
+				j = 2 * j;
+			} else {
+				u -= tree[2 * j];
+				j = 2 * j + 1;
+			}
+		}
+
+		// guard against rounding landing on a slot not filled yet
+		int slot = j - capacity;
+		return slot < size ? slot : size - 1;
+	}
+
+	public int state(int slot) {
+		return states[slot];
+	}
+
+	public int action(int slot) {
+		return actions[slot];
+	}
+
+	public double reward(int slot) {
+		return rewards[slot];
+	}
+
+	public int nextState(int slot) {
+		return nextStates[slot];
+	}
+
+	public boolean done(int slot) {
+		return dones[slot];
+	}
+
+}
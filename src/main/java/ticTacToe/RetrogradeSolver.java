@@ -0,0 +1,172 @@
+package ticTacToe;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Solves the {@link TTTMDP} exactly in a single pass by backward induction (retrograde analysis).
+ *
+ * Every transition of the MDP adds one or two pieces to the board, so the states form a DAG ordered by the number of
+ * pieces. Processing the states where it's X's turn by decreasing piece count, the values of all the targets of a
+ * state are final by the time the state itself is backed up, so one Bellman backup per state gives the exact optimal
+ * value function, and the move that achieves it gives the optimal (greedy) policy. This is what
+ * {@link ValueIterationAgent} and {@link PolicyIterationAgent} approach with repeated sweeps.
+ *
+ * In symmetric mode only the canonical states of {@link Symmetry} are backed up, on the symmetry-reduced model, and
+ * their values are then copied to the other states of their class.
+ */
+public class RetrogradeSolver {
+
+	final TTTMDP mdp;
+
+	final double discount;
+
+	final ValueFunction values = new ValueFunction();
+
+	/**
+	 * {@code bestRows[s]} is the row of the compiled MDP (see {@link CompiledMDP}) of the best move in state {@code s},
+	 * -1 for states without moves
+	 */
+	int[] bestRows;
+
+	/**
+	 * whether to solve the symmetry-reduced model, in which case {@link #bestRows} are rows of that model and only set
+	 * for canonical states
+	 */
+	final boolean symmetric;
+
+	public RetrogradeSolver(TTTMDP mdp, double discount) {
+		this(mdp, discount, false);
+	}
+
+	/**
+	 * @param symmetric whether to only solve the canonical states, see {@link Symmetry}
+	 */
+	public RetrogradeSolver(TTTMDP mdp, double discount, boolean symmetric) {
+		this.mdp = mdp;
+		this.discount = discount;
+		this.symmetric = symmetric;
+	}
+
+	/**
+	 * Computes the optimal values and moves of all states in {@link #values} and {@link #bestRows}.
+	 */
+	public void solve() {
+		CompiledMDP model = mdp.compile(symmetric);
+		StateSpace space = model.space;
+		double[] rewards = mdp.rewards();
+		double[] v = values.values;
+		int[] ids = symmetric ? Symmetry.getInstance().canonicalIds(values.domain()) : values.domain();
+		int[] order = byPieces(space, ids);
+
+		bestRows = new int[space.size()];
+		Arrays.fill(bestRows, -1);
+		for (int i = order.length - 1; i >= 0; i--) {
+			int s = order[i];
+			int best = model.bestRow(s, rewards, discount, v);
+			bestRows[s] = best;
+			if (best >= 0) // terminal states keep their value of 0
+				v[s] = model.backup(best, rewards, discount, v);
+		}
+
+		if (symmetric)
+			Symmetry.getInstance().expand(v);
+	}
+
+	/**
+	 * Evaluates a fixed policy exactly in one backward pass, like {@link #solve()} but following the given moves instead 
+	 * of the best ones.
+	 *
+	 * @param rows for each state id, the row of the compiled MDP (see {@link CompiledMDP}) of the policy's move, -1 for
+	 *             states without a move
+	 * @return the values of the states under the policy
+	 */
+	public ValueFunction evaluate(int[] rows) {
+		CompiledMDP model = mdp.compile();
+		double[] rewards = mdp.rewards();
+		ValueFunction result = new ValueFunction();
+		int[] order = byPieces(model.space, result.domain());
+		for (int i = order.length - 1; i >= 0; i--) {
+			int s = order[i];
+			if (rows[s] >= 0)
+				result.values[s] = model.backup(rows[s], rewards, discount, result.values);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return the states {@code ids} sorted by increasing number of pieces on the board
+	 */
+	private static int[] byPieces(StateSpace space, int[] ids) {
+		// bucket the states by piece count
+		int[] start = new int[11];
+		for (int s : ids)
+			start[space.pieces(s) + 1]++;
+		for (int p = 1; p < start.length; p++)
+			start[p] += start[p - 1];
+
+		int[] order = new int[ids.length];
+		for (int s : ids)
+			order[start[space.pieces(s)]++] = s;
+
+		return order;
+	}
+
+	/**
+	 * @return the optimal values computed by {@link #solve()}
+	 */
+	public ValueFunction getValues() {
+		return values;
+	}
+
+	/**
+	 * @return the moves of the optimal policy computed by {@link #solve()}, for every state where it's X's turn
+	 */
+	public HashMap<Game, Move> getPolicyMap() {
+		CompiledMDP model = mdp.compile(symmetric);
+		HashMap<Game, Move> p = new HashMap<Game, Move>();
+		for (int s : values.domain()) {
+			int cell = bestCell(model, s);
+			if (cell >= 0)
+				p.put(model.space.game(s), new Move('X', cell / 3, cell % 3));
+		}
+
+		return p;
+	}
+
+	/**
+	 * @return the cell of the best move in state {@code s}, -1 if there is none
+	 */
+	private int bestCell(CompiledMDP model, int s) {
+		if (!symmetric)
+			return bestRows[s] < 0 ? -1 : model.action(bestRows[s]);
+
+		Symmetry symmetry = Symmetry.getInstance();
+		int c = symmetry.canonical(s);
+		return bestRows[c] < 0 ? -1 : symmetry.fromCanonical(s, model.action(bestRows[c]));
+	}
+
+	/**
+	 * @return the optimal policy computed by {@link #solve()}, a {@link SymmetricPolicy} in symmetric mode
+	 */
+	public Policy getPolicy() {
+		CompiledMDP model = mdp.compile(symmetric);
+		if (symmetric) {
+			SymmetricPolicy p = new SymmetricPolicy('X');
+			for (int s : Symmetry.getInstance().canonicalIds(values.domain()))
+				if (bestRows[s] >= 0)
+					p.set(s, model.action(bestRows[s]));
+
+			return p;
+		}
+
+		DensePolicy p = new DensePolicy('X', false);
+		for (int s : values.domain())
+			if (bestRows[s] >= 0)
+				p.set(model.space.hash(s), model.action(bestRows[s]));
+
+		return p;
+	}
+
+}
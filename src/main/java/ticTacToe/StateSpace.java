@@ -0,0 +1,263 @@
+package ticTacToe;
+
+/**
+ * The set of all valid Tic Tac Toe states (see {@link Game#isValid()}), for either side to move, with each state given a dense
+ * id between 0 and {@link #size()}-1. Ids are assigned in increasing order of {@link Game#hashCode()}.
+ *
+ * The space is built once per JVM, on first use of {@link #getInstance()}, directly from the base-3 hashes without creating
+ * {@link Game} objects. It then exposes primitive arrays that the agents index into instead of hashing {@link Game}s:
+ * hash to id and back, the game state (ongoing, won, draw) of each id, the mask of legal moves and the successor id
+ * for each (id, cell) pair. None of these arrays are modified after construction.
+ *
+ * Cells are numbered {@code 3*x+y} as in {@link Game}.
+ */
+public final class StateSpace {
+
+	/**
+	 * The number of possible game hashes, 0 to 59048 (2222222222 in base 3).
+	 */
+	public static final int NUM_HASHES = 59049;
+
+	/**
+	 * {@code hashToId[h]} is the id of the state with hash {@code h}, or -1 if {@code h} is not a valid state.
+	 */
+	final int[] hashToId = new int[NUM_HASHES];
+
+	/**
+	 * {@code idToHash[id]} is the {@link Game#hashCode()} of state {@code id}
+	 */
+	final int[] idToHash;
+
+	/**
+	 * The occupancy masks of each state, as in {@link Game#xBits} and {@link Game#oBits}
+	 */
+	final short[] xBits;
+	final short[] oBits;
+
+	/**
+	 * One of {@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} or {@link Game#DRAW} for each state
+	 */
+	final byte[] result;
+
+	/**
+	 * {@link Game#X_TURN} or {@link Game#O_TURN} for each state
+	 */
+	final byte[] toMove;
+
+	/**
+	 * The legal moves of each state as a 9-bit mask of cells. Terminal states have no legal moves.
+	 */
+	final short[] legalMoves;
+
+	/**
+	 * {@code successors[9*id+cell]} is the id of the state reached by the side to move playing {@code cell} in state
+	 * {@code id}, or -1 if that move is not legal.
+	 */
+	final int[] successors;
+
+	/**
+	 * the ids of the states where it's X's turn or the game is over, and likewise for O. See {@link Game#generateAllValidGames(char)}
+	 */
+	final int[] xStates;
+	final int[] oStates;
+
+	private StateSpace() {
+		int[] hashes = new int[NUM_HASHES];
+		int n = 0;
+		for (int h = 0; h < NUM_HASHES; h++) {
+			hashToId[h] = -1;
+			if (isValidHash(h)) {
+				hashToId[h] = n;
+				hashes[n++] = h;
+			}
+		}
+
+		idToHash = new int[n];
+		System.arraycopy(hashes, 0, idToHash, 0, n);
+		xBits = new short[n];
+		oBits = new short[n];
+		result = new byte[n];
+		toMove = new byte[n];
+		legalMoves = new short[n];
+		successors = new int[9 * n];
+
+		int xs = 0;
+		int os = 0;
+		for (int id = 0; id < n; id++) {
+			int h = idToHash[id];
+			xBits[id] = (short) xBitsOf(h);
+			oBits[id] = (short) oBitsOf(h);
+			toMove[id] = (byte) (h % 3 - 1);
+			result[id] = (byte) Game.evaluate(xBits[id], oBits[id]);
+			if (result[id] == Game.ONGOING)
+				legalMoves[id] = (short) (~(xBits[id] | oBits[id]) & Game.FULL);
+
+			for (int cell = 0; cell < 9; cell++) {
+				if ((legalMoves[id] & (1 << cell)) == 0)
+					successors[9 * id + cell] = -1;
+				else if (toMove[id] == Game.X_TURN)
+					successors[9 * id + cell] = hashToId[h + Game.POW3[cell] + 1];
+				else
+					successors[9 * id + cell] = hashToId[h + 2 * Game.POW3[cell] - 1];
+			}
+
+			if (toMove[id] == Game.X_TURN || result[id] != Game.ONGOING)
+				xs++;
+			if (toMove[id] == Game.O_TURN || result[id] != Game.ONGOING)
+				os++;
+		}
+
+		xStates = new int[xs];
+		oStates = new int[os];
+		xs = 0;
+		os = 0;
+		for (int id = 0; id < n; id++) {
+			if (toMove[id] == Game.X_TURN || result[id] != Game.ONGOING)
+				xStates[xs++] = id;
+			if (toMove[id] == Game.O_TURN || result[id] != Game.ONGOING)
+				oStates[os++] = id;
+		}
+	}
+
+	private static class Holder {
+		static final StateSpace INSTANCE = new StateSpace();
+	}
+
+	/**
+	 * @return the state space, building it if this is the first call in this JVM
+	 */
+	public static StateSpace getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	static int xBitsOf(int hash) {
+		int bits = 0;
+		int digits = hash / 3;
+		for (int cell = 8; cell >= 0; cell--, digits /= 3)
+			if (digits % 3 == 1)
+				bits |= 1 << cell;
+
+		return bits;
+	}
+
+	static int oBitsOf(int hash) {
+		int bits = 0;
+		int digits = hash / 3;
+		for (int cell = 8; cell >= 0; cell--, digits /= 3)
+			if (digits % 3 == 2)
+				bits |= 1 << cell;
+
+		return bits;
+	}
+
+	/**
+	 * Same as {@link Game#isValid()} on {@link Game#inverseHash(int)}, without creating the game.
+	 */
+	private static boolean isValidHash(int hash) {
+		int turn = hash % 3;
+		if (turn == 0)
+			return false;
+
+		int xs = Integer.bitCount(xBitsOf(hash));
+		int os = Integer.bitCount(oBitsOf(hash));
+		if (Math.abs(xs - os) > 1)
+			return false;
+
+		if (xs > os && turn == 1)
+			return false;
+		else if (xs < os && turn == 2)
+			return false;
+
+		return true;
+	}
+
+	/**
+	 * @return the number of valid states
+	 */
+	public int size() {
+		return idToHash.length;
+	}
+
+	/**
+	 * @param hash a {@link Game#hashCode()}
+	 * @return the id of the state, or -1 if the hash is not a valid state
+	 */
+	public int id(int hash) {
+		return hashToId[hash];
+	}
+
+	/**
+	 * @return the id of game {@code g}, or -1 if {@code g} is not valid
+	 */
+	public int id(Game g) {
+		return hashToId[g.hashCode()];
+	}
+
+	public int hash(int id) {
+		return idToHash[id];
+	}
+
+	/**
+	 * @return one of {@link Game#ONGOING}, {@link Game#X_WON}, {@link Game#O_WON} or {@link Game#DRAW}
+	 */
+	public int result(int id) {
+		return result[id];
+	}
+
+	public boolean isTerminal(int id) {
+		return result[id] != Game.ONGOING;
+	}
+
+	/**
+	 * @return 'X' or 'O'
+	 */
+	public char whoseTurn(int id) {
+		return toMove[id] == Game.X_TURN ? 'X' : 'O';
+	}
+
+	/**
+	 * @return the 9-bit mask of legal moves (cells) in state {@code id}
+	 */
+	public int legalMoves(int id) {
+		return legalMoves[id];
+	}
+
+	/**
+	 * @return the id of the state after playing {@code cell} in state {@code id}, or -1 if the move is not legal
+	 */
+	public int successor(int id, int cell) {
+		return successors[9 * id + cell];
+	}
+
+	/**
+	 * @return the number of pieces on the board in state {@code id}
+	 */
+	public int pieces(int id) {
+		return Integer.bitCount(xBits[id] | oBits[id]);
+	}
+
+	/**
+	 * The ids of the states in {@link Game#generateAllValidGames(char)}, i.e. where it is {@code xo}'s turn or the game is
+	 * over, in increasing order. The returned array is shared and must not be modified.
+	 *
+	 * @param xo 'X' or 'O'
+	 */
+	public int[] ids(char xo) {
+		if (xo == 'X')
+			return xStates;
+		else if (xo == 'O')
+			return oStates;
+
+		throw new IllegalArgumentException("Argument should be either 'X' or 'O'");
+	}
+
+	/**
+	 * @return a new, evaluated, {@link Game} object for state {@code id}
+	 */
+	public Game game(int id) {
+		Game g = Game.inverseHash(idToHash[id]);
+		g.state = result[id];
+		return g;
+	}
+
+}
@@ -0,0 +1,81 @@
+package ticTacToe;
+
+import java.util.Arrays;
+
+/**
+ * A policy that stores one move per class of symmetric states (see {@link Symmetry}), the move in the canonical state
+ * of the class, so it holds about an eighth of the moves of a full policy. {@link #getMove(Game)} maps the canonical
+ * move back through the symmetry between the game and its canonical state.
+ */
+public class SymmetricPolicy extends Policy {
+
+	final StateSpace space;
+
+	final Symmetry symmetry;
+
+	/**
+	 * {@code cells[k]} is the cell of the move in the canonical state of class {@code k}, -1 if there is none
+	 */
+	final byte[] cells;
+
+	/**
+	 * An empty policy, without a move in any state.
+	 *
+	 * @param side the player of the moves, 'X' or 'O'
+	 */
+	public SymmetricPolicy(char side) {
+		if (side != 'X' && side != 'O')
+			throw new IllegalArgumentException("Can only be a policy for X or for O");
+
+		this.side = side;
+		this.space = StateSpace.getInstance();
+		this.symmetry = Symmetry.getInstance();
+		this.cells = new byte[symmetry.classes()];
+		Arrays.fill(cells, (byte) -1);
+	}
+
+	/**
+	 * Sets the move in canonical state {@code id}, and so in all the states of its class.
+	 *
+	 * @param id   a canonical state id, see {@link Symmetry#canonical(int)}
+	 * @param cell the cell {@code 3*x+y} of the move in that state, or -1 for no move
+	 */
+	public void set(int id, int cell) {
+		if (symmetry.canonical[id] != id)
+			throw new IllegalArgumentException("Not a canonical state: " + id);
+		if (cell < -1 || cell > 8)
+			throw new IllegalArgumentException("Invalid cell " + cell);
+
+		cells[symmetry.classOf[id]] = (byte) cell;
+	}
+
+	/**
+	 * @return the cell of the move in state {@code id}, -1 if there is none
+	 */
+	public int cell(int id) {
+		int c = cells[symmetry.classOf[id]];
+		return c < 0 ? -1 : symmetry.fromCanonical(id, c);
+	}
+
+	@Override
+	public Move getMove(Game g) {
+		int id = space.id(g);
+		if (id < 0)
+			return null;
+
+		int c = cell(id);
+		return c < 0 ? null : Move.of(side, c);
+	}
+
+	@Override
+	char encode(byte[] body) {
+		for (int id = 0; id < space.size(); id++) {
+			int c = cell(id);
+			if (c >= 0)
+				body[space.idToHash[id]] = (byte) c;
+		}
+
+		return side;
+	}
+
+}
@@ -0,0 +1,227 @@
+package ticTacToe;
+
+/**
+ * The 8 symmetries of the board (the dihedral group D4: 4 rotations and 4 reflections), and the partition of the
+ * {@link StateSpace} into classes of symmetric states.
+ *
+ * Symmetric states are equivalent for all agents here: the rules, the rewards and the random opponent are all
+ * invariant under rotating or reflecting the board. So each class only needs to be solved or learned once, for one
+ * canonical state, the one with the lowest {@link Game#hashCode()}. {@link #transform(int)} tells which symmetry maps a
+ * state to its canonical state, and a move learned in the canonical state is played in the original state by mapping
+ * its cell back with {@link #fromCanonical(int, int)}.
+ *
+ * Like {@link StateSpace}, the tables are built once per JVM, see {@link #getInstance()}.
+ */
+public final class Symmetry {
+
+	/**
+	 * The number of symmetries. Symmetry 0 is the identity.
+	 */
+	public static final int COUNT = 8;
+
+	/**
+	 * {@code CELLS[t][c]} is the cell that symmetry {@code t} moves cell {@code c} to. With cells {@code 3*x+y}, the
+	 * symmetries are: identity, rotations by 90, 180 and 270 degrees, the two reflections along the middle row and
+	 * column, and the two reflections along the diagonals.
+	 */
+	static final byte[][] CELLS = new byte[COUNT][9];
+
+	/**
+	 * {@code INVERSE[t]} is the symmetry that undoes {@code t}
+	 */
+	static final byte[] INVERSE = new byte[COUNT];
+
+	static {
+		for (int x = 0; x < 3; x++) {
+			for (int y = 0; y < 3; y++) {
+				int c = 3 * x + y;
+				CELLS[0][c] = (byte) c;
+				CELLS[1][c] = (byte) (3 * y + 2 - x);
+				CELLS[2][c] = (byte) (3 * (2 - x) + 2 - y);
+				CELLS[3][c] = (byte) (3 * (2 - y) + x);
+				CELLS[4][c] = (byte) (3 * (2 - x) + y);
+				CELLS[5][c] = (byte) (3 * x + 2 - y);
+				CELLS[6][c] = (byte) (3 * y + x);
+				CELLS[7][c] = (byte) (3 * (2 - y) + 2 - x);
+			}
+		}
+
+		for (int t = 0; t < COUNT; t++) {
+			for (int u = 0; u < COUNT; u++) {
+				boolean undoes = true;
+				for (int c = 0; c < 9; c++)
+					undoes &= CELLS[u][CELLS[t][c]] == c;
+				if (undoes)
+					INVERSE[t] = (byte) u;
+			}
+		}
+	}
+
+	final StateSpace space;
+
+	/**
+	 * {@code canonical[id]} is the id of the canonical state of the class of state {@code id}
+	 */
+	final int[] canonical;
+
+	/**
+	 * {@code transform[id]} is a symmetry that maps state {@code id} to its canonical state
+	 */
+	final byte[] transform;
+
+	/**
+	 * {@code classOf[id]} is the index of the class of state {@code id}, from 0 to {@link #classes()}-1, in
+	 * increasing order of the canonical states' ids
+	 */
+	final int[] classOf;
+
+	/**
+	 * the id of the canonical state of each class
+	 */
+	final int[] representatives;
+
+	private Symmetry(StateSpace space) {
+		this.space = space;
+		int n = space.size();
+		canonical = new int[n];
+		transform = new byte[n];
+		classOf = new int[n];
+
+		int classes = 0;
+		for (int id = 0; id < n; id++) {
+			int best = Integer.MAX_VALUE;
+			for (int t = 0; t < COUNT; t++) {
+				int h = hash(apply(t, space.xBits[id]), apply(t, space.oBits[id]), space.toMove[id]);
+				if (h < best) {
+					best = h;
+					transform[id] = (byte) t;
+				}
+			}
+
+			canonical[id] = space.hashToId[best];
+			if (canonical[id] == id)
+				classes++;
+		}
+
+		// canonical states have the lowest id of their class, so they're numbered before any state mapped to them
+		representatives = new int[classes];
+		classes = 0;
+		for (int id = 0; id < n; id++) {
+			if (canonical[id] == id)
+				representatives[classes++] = id;
+			classOf[id] = canonical[id] == id ? classes - 1 : classOf[canonical[id]];
+		}
+	}
+
+	private static class Holder {
+		static final Symmetry INSTANCE = new Symmetry(StateSpace.getInstance());
+	}
+
+	/**
+	 * @return the symmetry tables, building them if this is the first call in this JVM
+	 */
+	public static Symmetry getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * @return the 9-bit mask of cells {@code bits} moved by symmetry {@code t}
+	 */
+	static int apply(int t, int bits) {
+		int image = 0;
+		for (; bits != 0; bits &= bits - 1)
+			image |= 1 << CELLS[t][Integer.numberOfTrailingZeros(bits)];
+
+		return image;
+	}
+
+	private static int hash(int xBits, int oBits, int toMove) {
+		int h = toMove + 1;
+		for (int c = 0; c < 9; c++) {
+			if ((xBits & (1 << c)) != 0)
+				h += Game.POW3[c];
+			else if ((oBits & (1 << c)) != 0)
+				h += 2 * Game.POW3[c];
+		}
+
+		return h;
+	}
+
+	/**
+	 * @return the number of classes of symmetric states
+	 */
+	public int classes() {
+		return representatives.length;
+	}
+
+	/**
+	 * @return the id of the canonical state symmetric to state {@code id}
+	 */
+	public int canonical(int id) {
+		return canonical[id];
+	}
+
+	/**
+	 * @return the id of the canonical state symmetric to {@code g}
+	 */
+	public int canonical(Game g) {
+		return canonical[space.id(g)];
+	}
+
+	/**
+	 * @return a symmetry that maps state {@code id} to its canonical state
+	 */
+	public int transform(int id) {
+		return transform[id];
+	}
+
+	/**
+	 * @return the index of the class of state {@code id}, from 0 to {@link #classes()}-1
+	 */
+	public int classOf(int id) {
+		return classOf[id];
+	}
+
+	/**
+	 * @return the cell that {@code cell} of state {@code id} is in the canonical state
+	 */
+	public int toCanonical(int id, int cell) {
+		return CELLS[transform[id]][cell];
+	}
+
+	/**
+	 * @return the cell of state {@code id} that {@code cell} of its canonical state stands for
+	 */
+	public int fromCanonical(int id, int cell) {
+		return CELLS[INVERSE[transform[id]]][cell];
+	}
+
+	/**
+	 * @return the canonical states among {@code ids}, in the same order
+	 */
+	public int[] canonicalIds(int[] ids) {
+		int n = 0;
+		for (int s : ids)
+			if (canonical[s] == s)
+				n++;
+
+		int[] result = new int[n];
+		n = 0;
+		for (int s : ids)
+			if (canonical[s] == s)
+				result[n++] = s;
+
+		return result;
+	}
+
+	/**
+	 * Copies the value of every canonical state to the other states of its class.
+	 *
+	 * @param values values indexed by state id, of which only those of canonical states are read
+	 */
+	public void expand(double[] values) {
+		for (int id = 0; id < values.length; id++)
+			values[id] = values[canonical[id]];
+	}
+
+}
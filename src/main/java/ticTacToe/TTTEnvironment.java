@@ -60,7 +60,7 @@ public class TTTEnvironment {
 	public List<Move> getPossibleMoves()
 	{
 		List<Move> moves=new ArrayList<Move>();
-		if (game.whoseTurn.getName()!='X')
+		if (game.getWhoseTurn().getName()!='X')
 			return moves;
 		
 		return game.getPossibleMoves();
@@ -130,6 +130,15 @@ public class TTTEnvironment {
 		
 	}
 	
+	/**
+	 * @return the rewards of this environment indexed by the reward indices of {@link CompiledMDP}: {@link CompiledMDP#WIN}, 
+	 * {@link CompiledMDP#LOSE}, {@link CompiledMDP#LIVING} and {@link CompiledMDP#DRAW}.
+	 */
+	public double[] rewards()
+	{
+		return CompiledMDP.rewards(winReward, loseReward, livingReward, drawReward);
+	}
+	
 	public boolean isTerminal()
 	{
 		return game.isTerminal();
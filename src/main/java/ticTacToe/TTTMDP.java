@@ -44,13 +44,33 @@ public class TTTMDP {
 	 * probabilities. 
 	 * This essentially gives you a uniform probability distribution over all possible resulting game states and rewards when making move {@code m} 
 	 * in game {@code g}. This is implemented for you to use in your Value Iteration and Policy Iteration implementations. 
+	 * 
+	 * Calls that take longer than the threshold of {@link FlightEvents.TransitionsGenerated} are recorded as such events
+	 * when a flight recording is running.
 	 * @param g
 	 * @param m
 	 * @return
 	 */
 	public List<TransitionProb> generateTransitions(Game g, Move m)
 	{
-		if (g.whoseTurn.getName()!=m.who.getName())
+		FlightEvents.TransitionsGenerated event=new FlightEvents.TransitionsGenerated();
+		event.begin();
+		List<TransitionProb> result=transitions(g, m);
+		event.end();
+		if (event.shouldCommit())
+		{
+			event.hash=g.hashCode();
+			event.cell=3*m.x+m.y;
+			event.transitions=result.size();
+			event.commit();
+		}
+		
+		return result;
+	}
+	
+	private List<TransitionProb> transitions(Game g, Move m)
+	{
+		if (g.getWhoseTurn().getName()!=m.who.getName())
 			throw new IllegalArgumentException("It's not "+m.who.getName()+"'s turn in game. This shouldn't happen!");
 		
 		if (m.who.getName()=='O')
@@ -137,6 +157,35 @@ public class TTTMDP {
 	
 	
 	
+	/**
+	 * Returns the transition function of this MDP compiled into flat arrays, see {@link CompiledMDP}. The compiled model
+	 * does not depend on the rewards, so it is built once and shared by all {@link TTTMDP} instances. Use it together 
+	 * with {@link #rewards()}.
+	 * @return the compiled transition model
+	 */
+	public CompiledMDP compile()
+	{
+		return CompiledMDP.getInstance();
+	}
+	
+	/**
+	 * @param symmetric whether to get the symmetry-reduced model, which only covers the canonical states of {@link Symmetry}
+	 * @return the compiled transition model, see {@link #compile()}
+	 */
+	public CompiledMDP compile(boolean symmetric)
+	{
+		return symmetric ? CompiledMDP.getReduced() : CompiledMDP.getInstance();
+	}
+	
+	/**
+	 * @return the rewards of this MDP indexed by the reward indices of {@link CompiledMDP}: {@link CompiledMDP#WIN}, 
+	 * {@link CompiledMDP#LOSE}, {@link CompiledMDP#LIVING} and {@link CompiledMDP#DRAW}.
+	 */
+	public double[] rewards()
+	{
+		return CompiledMDP.rewards(winReward, loseReward, livingReward, drawReward);
+	}
+	
 	public boolean isTerminal(Game g)
 	{
 		return g.isTerminal();
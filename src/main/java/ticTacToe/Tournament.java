@@ -0,0 +1,301 @@
+package ticTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A round-robin tournament between agents: every agent plays every other agent a number of games as X and the same
+ * number as O, without printing anything. The games are split into batches run in parallel on an
+ * {@link ExecutorService}, and the outcomes are counted with {@link LongAdder}s.
+ *
+ * Agents are given as factories rather than instances, because an agent takes its name from the side it plays (see
+ * {@link Game#Game(Agent, Agent)}) and most policies are not thread safe. Each batch gets fresh agents from the
+ * factories. The factories are called once per batch, so an agent that trains when it is constructed should rather be
+ * trained once and its policy shared, e.g. {@code () -> new Agent(trained.getPolicy())}, which is safe for
+ * {@link DensePolicy}, {@link SymmetricPolicy} and the other policies that don't change after they're built.
+ *
+ * A game in which the side to move has no move, or plays an illegal one, is forfeited: it counts as a loss for that
+ * side, and as a forfeit. This is what happens to agents that have only learned to play X when they play O.
+ */
+public class Tournament {
+
+	/**
+	 * the number of games played by one task
+	 */
+	static final int BATCH = 1000;
+
+	final List<String> names = new ArrayList<String>();
+
+	final List<Supplier<? extends Agent>> factories = new ArrayList<Supplier<? extends Agent>>();
+
+	/**
+	 * the number of games each ordered pairing plays, i.e. each pair of agents plays twice as many, half as X
+	 */
+	final long gamesPerPairing;
+
+	/**
+	 * @param gamesPerPairing the number of games each agent plays as X against each other agent as O
+	 */
+	public Tournament(long gamesPerPairing) {
+		if (gamesPerPairing < 1)
+			throw new IllegalArgumentException("games per pairing should be at least 1");
+
+		this.gamesPerPairing = gamesPerPairing;
+	}
+
+	/**
+	 * Adds an agent to the tournament.
+	 *
+	 * @param name    the name shown in the results
+	 * @param factory creates a new instance of the agent, see {@link Tournament}
+	 * @return this tournament
+	 */
+	public Tournament add(String name, Supplier<? extends Agent> factory) {
+		names.add(name);
+		factories.add(factory);
+		return this;
+	}
+
+	/**
+	 * Plays the tournament on a new pool of {@code threads} threads.
+	 */
+	public Results run(int threads) {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			return run(executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Plays the tournament on {@code executor}, and returns once all games are over.
+	 *
+	 * @throws IllegalStateException if a batch failed, e.g. because an agent threw an exception
+	 */
+	public Results run(ExecutorService executor) {
+		final int n = names.size();
+		final Results results = new Results(names.toArray(new String[n]));
+
+		long t0 = System.nanoTime();
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i == j)
+					continue;
+
+				for (long done = 0; done < gamesPerPairing; done += BATCH) {
+					final int xi = i;
+					final int oj = j;
+					final long games = Math.min(BATCH, gamesPerPairing - done);
+					futures.add(executor.submit(new Runnable() {
+						public void run() {
+							playBatch(xi, oj, games, results);
+						}
+					}));
+				}
+			}
+		}
+
+		try {
+			for (Future<?> f : futures)
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while playing the tournament", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A tournament game failed", e.getCause());
+		}
+
+		results.nanos = System.nanoTime() - t0;
+		return results;
+	}
+
+	/**
+	 * Plays {@code games} games between new instances of agent {@code i} as X and agent {@code j} as O, and adds the
+	 * outcomes to {@code results}. The games are played by a {@link GameRunner} without a listener, on one reused
+	 * {@link Game}.
+	 */
+	void playBatch(int i, int j, long games, Results results) {
+		Agent x = factories.get(i).get();
+		Agent o = factories.get(j).get();
+
+		GameRunner runner = new GameRunner();
+		Game g = new Game(x, o);
+
+		long xWins = 0;
+		long oWins = 0;
+		long draws = 0;
+		long forfeits = 0;
+		for (long n = 0; n < games; n++) {
+			g.reset();
+			GameRunner.Result r = runner.run(g);
+			if (r.isForfeit())
+				forfeits++;
+
+			char winner = r.getWinner();
+			if (winner == 'X')
+				xWins++;
+			else if (winner == 'O')
+				oWins++;
+			else
+				draws++;
+		}
+
+		// one update per counter per batch keeps the adders uncontended
+		results.xWins[i][j].add(xWins);
+		results.oWins[i][j].add(oWins);
+		results.draws[i][j].add(draws);
+		results.forfeits[i][j].add(forfeits);
+	}
+
+	/**
+	 * The outcomes of a tournament. Agents are numbered in the order they were added, and {@code [i][j]} counts the
+	 * games agent {@code i} played as X against agent {@code j} as O.
+	 */
+	public static class Results {
+
+		final String[] names;
+
+		final LongAdder[][] xWins;
+		final LongAdder[][] oWins;
+		final LongAdder[][] draws;
+		final LongAdder[][] forfeits;
+
+		/**
+		 * the wall clock time the tournament took
+		 */
+		long nanos;
+
+		Results(String[] names) {
+			int n = names.length;
+			this.names = names;
+			this.xWins = adders(n);
+			this.oWins = adders(n);
+			this.draws = adders(n);
+			this.forfeits = adders(n);
+		}
+
+		private static LongAdder[][] adders(int n) {
+			LongAdder[][] a = new LongAdder[n][n];
+			for (int i = 0; i < n; i++)
+				for (int j = 0; j < n; j++)
+					a[i][j] = new LongAdder();
+
+			return a;
+		}
+
+		public String[] getNames() {
+			return names.clone();
+		}
+
+		/**
+		 * @return the number of games agent {@code i} won against agent {@code j}, as X or as O
+		 */
+		public long wins(int i, int j) {
+			return xWins[i][j].sum() + oWins[j][i].sum();
+		}
+
+		/**
+		 * @return the number of games agent {@code i} lost against agent {@code j}, as X or as O
+		 */
+		public long losses(int i, int j) {
+			return oWins[i][j].sum() + xWins[j][i].sum();
+		}
+
+		/**
+		 * @return the number of draws between agents {@code i} and {@code j}
+		 */
+		public long draws(int i, int j) {
+			return draws[i][j].sum() + draws[j][i].sum();
+		}
+
+		/**
+		 * @return the number of games between agents {@code i} and {@code j} that were forfeited by either
+		 */
+		public long forfeits(int i, int j) {
+			return forfeits[i][j].sum() + forfeits[j][i].sum();
+		}
+
+		/**
+		 * @return the number of games agent {@code i} played as X against agent {@code j}, and won, lost and drew
+		 */
+		public long[] asX(int i, int j) {
+			return new long[] { xWins[i][j].sum(), oWins[i][j].sum(), draws[i][j].sum() };
+		}
+
+		/**
+		 * @return the total number of games played
+		 */
+		public long games() {
+			long total = 0;
+			for (int i = 0; i < names.length; i++)
+				for (int j = 0; j < names.length; j++)
+					total += xWins[i][j].sum() + oWins[i][j].sum() + draws[i][j].sum();
+
+			return total;
+		}
+
+		public double getSeconds() {
+			return nanos / 1e9;
+		}
+
+		public double getGamesPerSecond() {
+			return nanos == 0 ? 0.0 : games() * 1e9 / nanos;
+		}
+
+		/**
+		 * @return a table of wins/losses/draws of each agent (rows) against each other agent (columns), over both sides
+		 */
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%-12s", ""));
+			for (String name : names)
+				sb.append(String.format("%24s", name));
+			sb.append('\n');
+
+			for (int i = 0; i < names.length; i++) {
+				sb.append(String.format("%-12s", names[i]));
+				for (int j = 0; j < names.length; j++) {
+					if (i == j)
+						sb.append(String.format("%24s", "-"));
+					else
+						sb.append(String.format("%24s", wins(i, j) + "/" + losses(i, j) + "/" + draws(i, j)));
+				}
+				sb.append('\n');
+			}
+
+			sb.append(String.format("%d games in %.2fs, %.0f games/s%n", games(), getSeconds(), getGamesPerSecond()));
+			return sb.toString();
+		}
+
+	}
+
+	/**
+	 * Plays a tournament between the random, aggressive and defensive agents and the value iteration agent, whose
+	 * policy is trained once and shared, and prints the results.
+	 *
+	 * @param args optionally, the number of games per pairing and the number of threads
+	 */
+	public static void main(String[] args) {
+		long games = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		final Policy vi = new ValueIterationAgent().getPolicy();
+		Tournament t = new Tournament(games);
+		t.add("random", RandomAgent::new);
+		t.add("aggressive", AggressiveAgent::new);
+		t.add("defensive", DefensiveAgent::new);
+		t.add("vi", () -> new Agent(vi));
+
+		System.out.print(t.run(threads));
+	}
+
+}
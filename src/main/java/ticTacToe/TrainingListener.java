@@ -0,0 +1,53 @@
+package ticTacToe;
+
+/**
+ * Gets per-iteration progress reports from training: the sweeps of {@link ValueIterationAgent}, the evaluation and
+ * improvement steps of {@link PolicyIterationAgent}, and regular progress of {@link QLearningAgent}. All methods do
+ * nothing by default, so a listener only implements those it needs. Agents without a listener don't time or measure
+ * anything.
+ *
+ * Every report includes the bytes allocated by the reporting thread during the reported phase, as measured by
+ * {@link AllocationCounter}, or -1 if the JVM can't measure them. Work done on other threads, e.g. the pool of a
+ * parallel sweep, is not counted. Parallel Q-learning workers each report their own progress from their own thread,
+ * so a listener given to them must be thread safe.
+ */
+public interface TrainingListener {
+
+	/**
+	 * Called after each value iteration sweep.
+	 *
+	 * @param iteration      the sweep number, from 1
+	 * @param residual       the maximum Bellman residual of the sweep
+	 * @param nanos          the time the sweep took
+	 * @param allocatedBytes the bytes allocated during the sweep
+	 */
+	default void sweep(int iteration, double residual, long nanos, long allocatedBytes) {
+	}
+
+	/**
+	 * Called after each policy evaluation and improvement step of policy iteration.
+	 *
+	 * @param iteration        the step number, from 1
+	 * @param evaluationSweeps the number of sweeps the policy evaluation took
+	 * @param changedActions   the number of states whose action the improvement changed
+	 * @param nanos            the time the step took
+	 * @param allocatedBytes   the bytes allocated during the step
+	 */
+	default void policyIteration(int iteration, int evaluationSweeps, int changedActions, long nanos,
+			long allocatedBytes) {
+	}
+
+	/**
+	 * Called regularly during Q-learning, for the episodes played since the previous call.
+	 *
+	 * @param episodes          the total number of episodes played so far
+	 * @param episodesPerSecond the episodes played per second since the previous call
+	 * @param meanTdError       the mean absolute TD error of the q-learning updates since the previous call
+	 * @param epsilon           the exploration probability
+	 * @param allocatedBytes    the bytes allocated since the previous call
+	 */
+	default void episodes(long episodes, double episodesPerSecond, double meanTdError, double epsilon,
+			long allocatedBytes) {
+	}
+
+}
@@ -0,0 +1,18 @@
+package ticTacToe;
+
+/**
+ * How the {@link ValueIterationAgent} and {@link PolicyIterationAgent} solve the {@link TTTMDP} when training.
+ */
+public enum TrainingMode {
+
+	/**
+	 * repeated sweeps over all states: value iteration sweeps, or policy evaluation and improvement steps
+	 */
+	ITERATIVE,
+
+	/**
+	 * a single backward pass from the terminal states with the {@link RetrogradeSolver}
+	 */
+	RETROGRADE
+
+}
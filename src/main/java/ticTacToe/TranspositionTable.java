@@ -0,0 +1,272 @@
+package ticTacToe;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache of searched positions, indexed by their {@link MNKGame#zobrist()} key: for each position, the
+ * score found by a search of some depth, whether that score is exact or only a bound, and the best move.
+ *
+ * All entries live in one {@code long[]}, allocated once for the memory budget given to the constructor, so the table
+ * never grows however many positions are stored. It is split into buckets of two entries: the first keeps the entry
+ * of the deepest search (or the latest, if it is from an older search, see {@link #newSearch()}), and the second is
+ * overwritten by every store that doesn't go to the first, and by the entry of another position that a store to the
+ * first replaces. Deep results, which are the most expensive to redo, then survive the many shallow ones, while recent
+ * shallow results are still kept.
+ *
+ * An entry is two longs: its data, and its key XOR its data. A probe only returns the data if XORing it back gives
+ * the probed key. That also detects entries torn by two threads storing at the same time, so searches on several
+ * threads can share a table without locks: a torn entry is a miss. The statistics are plain counters, only exact
+ * when the table is used by one thread.
+ */
+public class TranspositionTable {
+
+	/**
+	 * Bounds of a stored score: the exact score, a lower bound (the search failed high) or an upper bound (it failed
+	 * low).
+	 */
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	/**
+	 * the value {@link #probe(long)} returns for a position that is not in the table
+	 */
+	public static final long MISS = 0L;
+
+	/**
+	 * the largest memory budget, in MB
+	 */
+	public static final int MAX_MEGABYTES = 8192;
+
+	/**
+	 * each bucket is 4 longs: the check and the data of its two entries
+	 */
+	static final int BUCKET_LONGS = 4;
+
+	static final int BUCKET_BYTES = 8 * BUCKET_LONGS;
+
+	/**
+	 * Entry data layout: the score in bits 0-31, the depth in bits 32-39, the bound in bits 40-41, the move plus one in
+	 * bits 42-49 (0 for no move), and the search generation in bits 50-57. The bound is never 0, so the data of a
+	 * stored entry isn't either.
+	 */
+	private static final int DEPTH_SHIFT = 32;
+	private static final int BOUND_SHIFT = 40;
+	private static final int MOVE_SHIFT = 42;
+	private static final int AGE_SHIFT = 50;
+
+	final long[] table;
+
+	/**
+	 * {@code table.length / BUCKET_LONGS - 1}; the number of buckets is a power of two
+	 */
+	final int mask;
+
+	/**
+	 * the generation of the current search, see {@link #newSearch()}
+	 */
+	int age;
+
+	long probes;
+	long hits;
+	long misses;
+	long collisions;
+	long stores;
+	long overwrites;
+
+	/**
+	 * A table taking at most {@code megabytes} MB: the largest power of two number of buckets that fits.
+	 *
+	 * @param megabytes the memory budget, from 1 to {@link #MAX_MEGABYTES}
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1 || megabytes > MAX_MEGABYTES)
+			throw new IllegalArgumentException("The budget should be 1 to " + MAX_MEGABYTES + " MB, not " + megabytes);
+
+		long buckets = Long.highestOneBit(((long) megabytes << 20) / BUCKET_BYTES);
+		this.table = new long[(int) (buckets * BUCKET_LONGS)];
+		this.mask = (int) buckets - 1;
+	}
+
+	/**
+	 * @return the index in {@link #table} of the bucket of {@code key}
+	 */
+	private int bucket(long key) {
+		return ((int) key & mask) * BUCKET_LONGS;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param key the Zobrist key of the position
+	 * @return the data of its entry, to decode with {@link #score(long)}, {@link #depth(long)}, {@link #bound(long)}
+	 *         and {@link #move(long)}, or {@link #MISS} if it is not in the table
+	 */
+	public long probe(long key) {
+		probes++;
+		int b = bucket(key);
+		boolean occupied = false;
+		for (int i = b; i < b + BUCKET_LONGS; i += 2) {
+			long data = table[i + 1];
+			if (data == 0)
+				continue;
+
+			if ((table[i] ^ data) == key) {
+				hits++;
+				return data;
+			}
+			occupied = true;
+		}
+
+		misses++;
+		if (occupied)
+			collisions++;
+		return MISS;
+	}
+
+	/**
+	 * Stores the result of a search of a position, replacing an entry of its bucket as described in
+	 * {@link TranspositionTable}.
+	 *
+	 * @param key   the Zobrist key of the position
+	 * @param score the score found
+	 * @param depth the depth searched, from 0 to 255
+	 * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param move  the cell of the best move, from 0 to 254, or -1 for none
+	 */
+	public void store(long key, int score, int depth, int bound, int move) {
+		if (depth < 0 || depth > 255)
+			throw new IllegalArgumentException("Invalid depth " + depth);
+		if (bound < EXACT || bound > UPPER)
+			throw new IllegalArgumentException("Invalid bound " + bound);
+		if (move < -1 || move > 254)
+			throw new IllegalArgumentException("Invalid move " + move);
+
+		long data = (score & 0xFFFFFFFFL) | (long) depth << DEPTH_SHIFT | (long) bound << BOUND_SHIFT
+				| (long) (move + 1) << MOVE_SHIFT | (long) age << AGE_SHIFT;
+
+		stores++;
+		int b = bucket(key);
+		long deep = table[b + 1];
+		boolean same = deep != 0 && (table[b] ^ deep) == key;
+		// the depth-preferred entry is replaced by the same position, a search at least as deep, or a newer search
+		if (deep == 0 || same || depth >= depth(deep) || age(deep) != age) {
+			if (deep != 0 && !same) {
+				// the replaced entry of another position moves to the always-replace entry rather than being lost
+				dropAlwaysReplace(b, key);
+				table[b + 2] = table[b];
+				table[b + 3] = deep;
+			}
+			table[b] = key ^ data;
+			table[b + 1] = data;
+		} else {
+			dropAlwaysReplace(b, key);
+			table[b + 2] = key ^ data;
+			table[b + 3] = data;
+		}
+	}
+
+	/**
+	 * Counts the always-replace entry of bucket {@code b} as overwritten if it holds a position other than {@code key}.
+	 */
+	private void dropAlwaysReplace(int b, long key) {
+		long old = table[b + 3];
+		if (old != 0 && (table[b + 2] ^ old) != key)
+			overwrites++;
+	}
+
+	/**
+	 * Starts a new search generation: entries stored by earlier searches can then be replaced by shallower ones.
+	 */
+	public void newSearch() {
+		age = (age + 1) & 0xFF;
+	}
+
+	/**
+	 * Empties the table and resets the statistics.
+	 */
+	public void clear() {
+		Arrays.fill(table, 0L);
+		age = 0;
+		probes = hits = misses = collisions = stores = overwrites = 0;
+	}
+
+	public static int score(long data) {
+		return (int) data;
+	}
+
+	public static int depth(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	public static int bound(long data) {
+		return (int) (data >>> BOUND_SHIFT) & 0x3;
+	}
+
+	/**
+	 * @return the cell of the best move, -1 if none was stored
+	 */
+	public static int move(long data) {
+		return ((int) (data >>> MOVE_SHIFT) & 0xFF) - 1;
+	}
+
+	static int age(long data) {
+		return (int) (data >>> AGE_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * @return the number of entries the table can hold
+	 */
+	public int capacity() {
+		return table.length / 2;
+	}
+
+	/**
+	 * @return the memory taken by the entries, in bytes
+	 */
+	public long bytes() {
+		return 8L * table.length;
+	}
+
+	public long getProbes() {
+		return probes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of misses whose bucket held other positions
+	 */
+	public long getCollisions() {
+		return collisions;
+	}
+
+	public long getStores() {
+		return stores;
+	}
+
+	/**
+	 * @return the number of stores that dropped the entry of another position from the table
+	 */
+	public long getOverwrites() {
+		return overwrites;
+	}
+
+	public double getHitRate() {
+		return probes == 0 ? 0.0 : (double) hits / probes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries (%d KB), %d probes, %.1f%% hits, %d misses, %d collisions, %d stores, "
+				+ "%d overwrites", capacity(), bytes() >> 10, probes, 100 * getHitRate(), misses, collisions, stores,
+				overwrites);
+	}
+
+}
@@ -0,0 +1,146 @@
+package ticTacToe;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A value function over the states of the {@link StateSpace}, stored in a {@code double[]} indexed by state id. Values
+ * can be read and written by state id, by raw {@link Game#hashCode()} or by {@link Game}, without boxing.
+ *
+ * The value function is defined on a domain of states, by default the states where it is X's turn or the game is over
+ * (as in {@link Game#generateAllValidGames(char)}). {@link #asMap()} gives a read-only {@code Map<Game, Double>} view
+ * over that domain for code written against the old map based value functions.
+ */
+public class ValueFunction {
+
+	final StateSpace space;
+
+	/**
+	 * {@code values[id]} is the value of state {@code id}. Ids outside the domain are kept at 0.
+	 */
+	final double[] values;
+
+	/**
+	 * the ids of the states this value function is defined on, in increasing order
+	 */
+	final int[] domain;
+
+	/**
+	 * A value function with all values set to 0 over the states where it's X's turn or the game is over.
+	 */
+	public ValueFunction() {
+		this(StateSpace.getInstance(), StateSpace.getInstance().ids('X'));
+	}
+
+	/**
+	 * @param space
+	 * @param domain the ids of the states the value function is defined on, in increasing order
+	 */
+	public ValueFunction(StateSpace space, int[] domain) {
+		this.space = space;
+		this.domain = domain;
+		this.values = new double[space.size()];
+	}
+
+	/**
+	 * @return the value of state {@code id}
+	 */
+	public double get(int id) {
+		return values[id];
+	}
+
+	public void set(int id, double v) {
+		values[id] = v;
+	}
+
+	/**
+	 * @param hash a {@link Game#hashCode()} between 0 and 59048
+	 * @return the value of the state with that hash
+	 */
+	public double getByHash(int hash) {
+		return values[space.hashToId[hash]];
+	}
+
+	public double get(Game g) {
+		return values[space.hashToId[g.hashCode()]];
+	}
+
+	/**
+	 * @return the ids of the states this value function is defined on. The array is shared and must not be modified.
+	 */
+	public int[] domain() {
+		return domain;
+	}
+
+	/**
+	 * @return a read-only view of this value function as a map. The view reflects later changes to the values. Each
+	 *         iteration over the view creates one {@link Game} per state.
+	 */
+	public Map<Game, Double> asMap() {
+		return new MapView();
+	}
+
+	private boolean inDomain(int id) {
+		return id >= 0 && Arrays.binarySearch(domain, id) >= 0;
+	}
+
+	private class MapView extends AbstractMap<Game, Double> {
+
+		@Override
+		public Double get(Object key) {
+			if (!(key instanceof Game))
+				return null;
+
+			int id = space.hashToId[((Game) key).hashCode()];
+			return inDomain(id) ? values[id] : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Game && inDomain(space.hashToId[((Game) key).hashCode()]);
+		}
+
+		@Override
+		public int size() {
+			return domain.length;
+		}
+
+		@Override
+		public Set<Entry<Game, Double>> entrySet() {
+			return new AbstractSet<Entry<Game, Double>>() {
+
+				@Override
+				public Iterator<Entry<Game, Double>> iterator() {
+					return new Iterator<Entry<Game, Double>>() {
+						int next = 0;
+
+						@Override
+						public boolean hasNext() {
+							return next < domain.length;
+						}
+
+						@Override
+						public Entry<Game, Double> next() {
+							if (!hasNext())
+								throw new NoSuchElementException();
+
+							int id = domain[next++];
+							return new SimpleImmutableEntry<Game, Double>(space.game(id), values[id]);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return domain.length;
+				}
+			};
+		}
+	}
+
+}
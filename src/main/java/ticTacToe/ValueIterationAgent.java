@@ -5,9 +5,9 @@ package ticTacToe;
  * H00383233
  */
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * A Value Iteration Agent, only very partially implemented. The methods to implement are: 
@@ -21,9 +21,14 @@ import java.util.Map;
 public class ValueIterationAgent extends Agent {
 
 	/**
-	 * This map is used to store the values of states * 
-	 */	
-	Map<Game, Double> valueFunction=new HashMap<Game, Double>();
+	 * This stores the values of states, in a {@code double[]} indexed by {@link StateSpace} id. 
+	 */
+	ValueFunction values=new ValueFunction();
+	
+	/**
+	 * A read-only map view of {@link #values}, kept for code that looks values up by {@link Game}.
+	 */
+	Map<Game, Double> valueFunction=values.asMap();
 	
 	/**
 	 * the discount factor
@@ -40,6 +45,57 @@ public class ValueIterationAgent extends Agent {
 	 */
 	int k=10;
 	
+	/**
+	 * the number of threads a sweep is split across. With 1, sweeps run on the calling thread. The values computed
+	 * do not depend on this number.
+	 */
+	int parallelism=1;
+	
+	/**
+	 * sweeps are split into chunks of at most this many states
+	 */
+	static final int CHUNK=512;
+	
+	/**
+	 * If positive, {@link #iterate()} sweeps until the maximum Bellman residual (the largest change of a value in one sweep)
+	 * is below epsilon, instead of doing exactly {@link #k} sweeps.
+	 */
+	double epsilon=0.0;
+	
+	/**
+	 * the most sweeps done when iterating until convergence (see {@link #epsilon})
+	 */
+	int maxIterations=1000;
+	
+	/**
+	 * If true, sweeps update the values in place (Gauss-Seidel), so a backup can already use values updated earlier 
+	 * in the same sweep. Gauss-Seidel sweeps always run on the calling thread, whatever the {@link #parallelism}.
+	 */
+	boolean gaussSeidel=false;
+	
+	/**
+	 * the number of sweeps done, and the maximum Bellman residual of the last one, by the last call to {@link #iterate()}
+	 */
+	int iterations=0;
+	double residual=Double.POSITIVE_INFINITY;
+	
+	/**
+	 * whether {@link #train()} runs value iteration sweeps or solves the MDP in one pass with the {@link RetrogradeSolver}
+	 */
+	TrainingMode mode=TrainingMode.ITERATIVE;
+	
+	/**
+	 * If true, {@link #train()} only sweeps the canonical states of {@link Symmetry}, on the symmetry-reduced model, and
+	 * copies their values to the symmetric states afterwards. The policy is then a {@link SymmetricPolicy}.
+	 */
+	boolean symmetric=false;
+	
+	/**
+	 * gets a report after each sweep of {@link #iterate()}, see {@link TrainingListener#sweep}. Sweeps are only timed
+	 * and measured when there is one.
+	 */
+	TrainingListener listener=null;
+	
 	
 	/**
 	 * This constructor trains the agent offline first and sets its policy
@@ -72,18 +128,47 @@ public class ValueIterationAgent extends Agent {
 	}
 	
 	/**
-	 * Initialises the {@link ValueIterationAgent#valueFunction} map, and sets the initial value of all states to 0 
-	 * (V0 from the lectures). Uses {@link Game#inverseHash} and {@link Game#generateAllValidGames(char)} to do this. 
+	 * Trains the agent with sweeps split across {@code parallelism} threads of a {@link ForkJoinPool}.
+	 * @param discountFactor
+	 * @param parallelism the number of threads, at least 1
+	 */
+	public ValueIterationAgent(double discountFactor, int parallelism) {
+		
+		if (parallelism<1)
+			throw new IllegalArgumentException("parallelism should be at least 1");
+		
+		this.discount=discountFactor;
+		this.parallelism=parallelism;
+		mdp=new TTTMDP();
+		initValues();
+		train();
+	}
+	
+	/**
+	 * Returns an agent that hasn't trained yet, with all values 0 and no policy. Unlike the other constructors, which
+	 * train at once, this lets options be set with the setters (e.g. {@link #setSymmetric(boolean)} or 
+	 * {@link #setEpsilon(double)}) before training once with {@link #train()}.
+	 * @param discountFactor
+	 * @return the untrained agent
+	 */
+	public static ValueIterationAgent untrained(double discountFactor)
+	{
+		ValueIterationAgent agent=new ValueIterationAgent((Policy) null);
+		agent.discount=discountFactor;
+		agent.mdp=new TTTMDP();
+		agent.initValues();
+		return agent;
+	}
+	
+	/**
+	 * Initialises the {@link ValueIterationAgent#values}, and sets the initial value of all states to 0 
+	 * (V0 from the lectures). The states are all valid games where it is X's turn, or it's terminal, from the shared {@link StateSpace}.
 	 * 
 	 */
 	public void initValues()
 	{
-		
-		List<Game> allGames=Game.generateAllValidGames('X');//all valid games where it is X's turn, or it's terminal.
-		for(Game g: allGames)
-			this.valueFunction.put(g, 0.0);
-		
-		
+		this.values=new ValueFunction();
+		this.valueFunction=values.asMap();
 		
 	}
 	
@@ -95,74 +180,297 @@ public class ValueIterationAgent extends Agent {
 		mdp=new TTTMDP(winReward, loseReward, livingReward, drawReward);
 	}
 	
-	private double calcVal(List<TransitionProb> tr) {
-		double val = 0.0;
-		
-		for (TransitionProb t : tr) {
-			val = t.prob * (t.outcome.localReward + (discount * valueFunction.get(t.outcome.sPrime)));
-		}
-		return val; 
+	/**
+	 * Trains the agent until the maximum Bellman residual is below {@code epsilon}.
+	 * @param discountFactor
+	 * @param epsilon the convergence threshold, see {@link #epsilon}
+	 * @param gaussSeidel whether to update values in place, see {@link #gaussSeidel}
+	 */
+	public ValueIterationAgent(double discountFactor, double epsilon, boolean gaussSeidel)
+	{
+		this.discount=discountFactor;
+		this.epsilon=epsilon;
+		this.gaussSeidel=gaussSeidel;
+		mdp=new TTTMDP();
+		initValues();
+		train();
+	}
+	
+	/**
+	 * Trains the agent in the given mode, see {@link TrainingMode}.
+	 * @param discountFactor
+	 * @param mode
+	 */
+	public ValueIterationAgent(double discountFactor, TrainingMode mode)
+	{
+		this.discount=discountFactor;
+		this.mode=mode;
+		mdp=new TTTMDP();
+		initValues();
+		train();
+	}
+	
+	/**
+	 * @param mode how to train, see {@link TrainingMode}.
+	 * It only takes effect at the next {@link #train()}, see {@link #untrained(double)}.
+	 */
+	public void setTrainingMode(TrainingMode mode)
+	{
+		this.mode=mode;
+	}
+	
+	/**
+	 * @param parallelism the number of threads of a sweep, see {@link #parallelism}.
+	 * It only takes effect at the next {@link #train()}, see {@link #untrained(double)}.
+	 */
+	public void setParallelism(int parallelism)
+	{
+		if (parallelism<1)
+			throw new IllegalArgumentException("parallelism should be at least 1");
 		
+		this.parallelism=parallelism;
+	}
+	
+	/**
+	 * @param epsilon the convergence threshold, see {@link #epsilon}. 0 to do a fixed {@link #k} sweeps. 
+	 * It only takes effect at the next {@link #train()}, see {@link #untrained(double)}.
+	 */
+	public void setEpsilon(double epsilon)
+	{
+		this.epsilon=epsilon;
+	}
+	
+	/**
+	 * @param gaussSeidel whether to update values in place, see {@link #gaussSeidel}.
+	 * It only takes effect at the next {@link #train()}, see {@link #untrained(double)}.
+	 */
+	public void setGaussSeidel(boolean gaussSeidel)
+	{
+		this.gaussSeidel=gaussSeidel;
+	}
+	
+	/**
+	 * @param symmetric whether to solve the canonical states only, see {@link #symmetric}. 
+	 * It only takes effect at the next {@link #train()}, see {@link #untrained(double)}.
+	 */
+	public void setSymmetric(boolean symmetric)
+	{
+		this.symmetric=symmetric;
+	}
+	
+	/**
+	 * @param listener gets a report after each sweep of the next {@link #train()}, see {@link #untrained(double)}, null
+	 * for none
+	 */
+	public void setTrainingListener(TrainingListener listener)
+	{
+		this.listener=listener;
+	}
+	
+	/**
+	 * @return the number of sweeps done by the last {@link #iterate()}
+	 */
+	public int getIterations()
+	{
+		return iterations;
 	}
- 
-	/*
-	 * Performs {@link #k} value iteration steps. After running this method, the {@link ValueIterationAgent#valueFunction} map should contain
-	 * the (current) values of each reachable state. You should use the {@link TTTMDP} provided to do this.
+	
+	/**
+	 * @return the maximum Bellman residual of the last sweep done by {@link #iterate()}
+	 */
+	public double getResidual()
+	{
+		return residual;
+	}
+	
+	/**
+	 * Performs {@link #k} value iteration steps, or, if {@link #epsilon} is positive, as many as needed for the maximum 
+	 * Bellman residual to fall below epsilon (but no more than {@link #maxIterations}). After running this method, the 
+	 * {@link ValueIterationAgent#values} should contain the (current) values of each reachable state, and 
+	 * {@link #getIterations()} and {@link #getResidual()} tell how many sweeps were done and how far from converged the 
+	 * values are. Uses the compiled form of the {@link TTTMDP} (see {@link TTTMDP#compile()}), so a sweep doesn't create 
+	 * any objects.
+	 * 
+	 * By default sweeps are synchronous (Jacobi): every backup of sweep k+1 reads the values of sweep k from one buffer and 
+	 * writes to a second one, and the two are swapped between sweeps. Each state is then computed independently of the
+	 * others, so with {@link #parallelism} above 1 the states are split into chunks and swept on a {@link ForkJoinPool}, 
+	 * with results bit-identical to a single thread. With {@link #gaussSeidel} the values are instead updated in place,
+	 * on the calling thread.
 	 * 
+	 * Each sweep is recorded as a {@link FlightEvents.Sweep} event when a flight recording is running.
 	 *
 	 */
 	public void iterate()
 	{
-		HashMap<Game, Move> nPol = new HashMap<Game, Move>();
-		
-		for (int k = 1; k < this.k; k++) { //  iterating through values
-			for (Game st : valueFunction.keySet()) { // iterating through each each game state
-				double maxVal = Double.NEGATIVE_INFINITY; // initializing the maximum value
-				Move bMov = null; // initializing the best action
-				for (Game ST : st.getAllSuccessorGames()) { // for each successor state
-				List<Move> m = st.getPossibleMoves(); // Assigning possible moves from state to a variable in list 
-				for (Move posMov : m) {  // iterating through list for move 
-				if (st.isLegal(posMov)) {  //if move is valid
-					double val = 0;
-					for (TransitionProb tr : this.mdp.generateTransitions(st, posMov)) {  
-						val += tr.prob * (tr.outcome.localReward + discount  // calculating value iteration
-								* valueFunction.get(tr.outcome.sPrime ));
-					}
-					if (val > maxVal) {  // if the value greater than maximum value 
-						maxVal = val;   // updating maximum value as calculated value 
-						bMov = posMov;  // updating the current move as best move
-					}
-					
+		CompiledMDP model = mdp.compile(symmetric);
+		double[] rewards = mdp.rewards();
+		int[] ids = symmetric ? Symmetry.getInstance().canonicalIds(values.domain()) : values.domain();
+		double[] cur = values.values;
+		double[] next = gaussSeidel ? cur : cur.clone();
+		
+		iterations = 0;
+		residual = Double.POSITIVE_INFINITY;
+		
+		ForkJoinPool pool = (parallelism > 1 && !gaussSeidel) ? new ForkJoinPool(parallelism) : null;
+		try {
+			while (epsilon > 0 ? (residual >= epsilon && iterations < maxIterations) : iterations < k) {
+				long t0 = 0;
+				long bytes0 = 0;
+				if (listener != null) {
+					t0 = System.nanoTime();
+					bytes0 = AllocationCounter.allocatedBytes();
 				}
-				valueFunction.put(st, maxVal);
-				nPol.put(st, bMov); // populating policy with state and best move.
+				
+				FlightEvents.Sweep event = new FlightEvents.Sweep();
+				event.begin();
+				Sweep sweep = new Sweep(model, rewards, discount, ids, 0, ids.length, cur, next);
+				if (pool == null)
+					residual = sweep.computeDirectly();
+				else
+					residual = pool.invoke(sweep);
+				
+				iterations++;
+				event.end();
+				if (event.shouldCommit()) {
+					event.algorithm = "value iteration";
+					event.iteration = iterations;
+					event.states = ids.length;
+					event.residual = residual;
+					event.commit();
 				}
+				if (listener != null)
+					listener.sweep(iterations, residual, System.nanoTime() - t0, AllocationCounter.since(bytes0));
 				
-				}	
+				double[] t = cur;
+				cur = next;
+				next = t;
 			}
-		policy = new Policy(nPol); //generating policy for value iteration
+		} finally {
+			if (pool != null)
+				pool.shutdown();
 		}
+		
+		if (cur != values.values)
+			System.arraycopy(cur, 0, values.values, 0, cur.length);
+		if (symmetric)
+			Symmetry.getInstance().expand(values.values);
 	}
-	/**This method should be run AFTER the train method to extract a policy according to {@link ValueIterationAgent#valueFunction}
-	 * You will need to do a single step of expectimax from each game (state) key in {@link ValueIterationAgent#valueFunction} 
+	
+	/**
+	 * One Bellman sweep over {@code ids[from..to)}, reading {@code cur} and writing {@code next}, which may be the same
+	 * array. Splits itself in halves down to {@link ValueIterationAgent#CHUNK} states, and returns the maximum residual 
+	 * over its states.
+	 */
+	private static class Sweep extends RecursiveTask<Double> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		final CompiledMDP model;
+		final double[] rewards;
+		final double discount;
+		final int[] ids;
+		final int from;
+		final int to;
+		final double[] cur;
+		final double[] next;
+		
+		Sweep(CompiledMDP model, double[] rewards, double discount, int[] ids, int from, int to, double[] cur, double[] next) {
+			this.model = model;
+			this.rewards = rewards;
+			this.discount = discount;
+			this.ids = ids;
+			this.from = from;
+			this.to = to;
+			this.cur = cur;
+			this.next = next;
+		}
+		
+		@Override
+		protected Double compute() {
+			if (to - from > CHUNK) {
+				int mid = (from + to) >>> 1;
+				Sweep left = new Sweep(model, rewards, discount, ids, from, mid, cur, next);
+				Sweep right = new Sweep(model, rewards, discount, ids, mid, to, cur, next);
+				left.fork();
+				double r = right.compute();
+				return Math.max(r, left.join());
+			}
+			
+			return computeDirectly();
+		}
+		
+		/**
+		 * sweeps the whole range on the calling thread
+		 * @return the maximum residual
+		 */
+		double computeDirectly() {
+			double max = 0.0;
+			for (int i = from; i < to; i++) {
+				int s = ids[i];
+				if (!model.hasActions(s)) // terminal states keep their value of 0
+					continue;
+				
+				double v = model.maxBackup(s, rewards, discount, cur);
+				max = Math.max(max, Math.abs(v - cur[s]));
+				next[s] = v;
+			}
+			
+			return max;
+		}
+	}
+	
+	/**This method should be run AFTER the train method to extract a policy according to {@link ValueIterationAgent#values}
+	 * It does a single step of expectimax from each game (state) in {@link ValueIterationAgent#values} 
 	 * to extract a policy.
 	 * 
-	 * @return the policy according to {@link ValueIterationAgent#valueFunction}
+	 * @return the policy according to {@link ValueIterationAgent#values}
 	 */
 	public Policy extractPolicy()
 	{
-		/*
-		 * YOUR CODE HERE
-		 */
-		return policy;
+		CompiledMDP model = mdp.compile(symmetric);
+		double[] rewards = mdp.rewards();
+		if (symmetric) {
+			SymmetricPolicy p = new SymmetricPolicy('X');
+			for (int s : Symmetry.getInstance().canonicalIds(values.domain())) {
+				int best = model.bestRow(s, rewards, discount, values.values);
+				if (best >= 0)
+					p.set(s, model.action(best));
+			}
+			
+			return p;
+		}
+		
+		DensePolicy p = new DensePolicy('X', false);
+		
+		for (int s : values.domain()) {
+			int best = model.bestRow(s, rewards, discount, values.values);
+			if (best < 0) // terminal state, no move
+				continue;
+			
+			p.set(values.space.hash(s), model.action(best));
+		}
+		
+		return p;
 	}
 	
 	/**
 	 * This method solves the mdp using your implementation of {@link ValueIterationAgent#extractPolicy} and
-	 * {@link ValueIterationAgent#iterate}. 
+	 * {@link ValueIterationAgent#iterate}, or with a {@link RetrogradeSolver} in {@link TrainingMode#RETROGRADE} mode. 
 	 */
 	public void train()
 	{
+		if (mode==TrainingMode.RETROGRADE)
+		{
+			RetrogradeSolver solver=new RetrogradeSolver(mdp, discount, symmetric);
+			solver.solve();
+			this.values=solver.getValues();
+			this.valueFunction=values.asMap();
+			this.iterations=1;
+			this.residual=0.0;
+			super.policy=solver.getPolicy();
+			return;
+		}
+		
 		/**
 		 * First run value iteration
 		 */
@@ -0,0 +1,143 @@
+package ticTacToe;
+
+import java.util.SplittableRandom;
+
+/**
+ * A batch version of {@link TTTEnvironment} that holds {@code B} games and steps all of them with one call to
+ * {@link #step}. As in {@link TTTEnvironment}, the learning agent plays X and the environment plays O, here with a
+ * random opponent, and a step includes the opponent's reply.
+ *
+ * The games are kept in struct-of-arrays form: game {@code b} is the {@link StateSpace} id {@code states[b]}, and
+ * actions, rewards, next states and done flags are passed in caller-provided primitive arrays, so stepping doesn't
+ * create any objects. A game that ends is reset to the empty board straight away.
+ */
+public class VectorizedTTTEnvironment {
+
+	final StateSpace space;
+
+	/**
+	 * the current state id of each game. It's always X's turn and never a terminal state.
+	 */
+	final int[] states;
+
+	double winReward = 10.0;
+	double loseReward = -50.0;
+	double livingReward = -1.00;
+	double drawReward = 0.0;
+
+	final SplittableRandom random;
+
+	/**
+	 * the id of the empty board with X to move
+	 */
+	final int start;
+
+	/**
+	 * @param batchSize the number of games, B
+	 * @param seed      the seed of the opponent's moves
+	 */
+	public VectorizedTTTEnvironment(int batchSize, long seed) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batch size should be at least 1");
+
+		this.space = StateSpace.getInstance();
+		this.states = new int[batchSize];
+		this.random = new SplittableRandom(seed);
+		this.start = space.id(new Game().hashCode());
+		reset();
+	}
+
+	public VectorizedTTTEnvironment(int batchSize, long seed, double winReward, double loseReward, double livingReward,
+			double drawReward) {
+		this(batchSize, seed);
+		this.winReward = winReward;
+		this.loseReward = loseReward;
+		this.livingReward = livingReward;
+		this.drawReward = drawReward;
+	}
+
+	/**
+	 * @return B, the number of games
+	 */
+	public int size() {
+		return states.length;
+	}
+
+	/**
+	 * Resets all games to the empty board.
+	 */
+	public void reset() {
+		for (int b = 0; b < states.length; b++)
+			states[b] = start;
+	}
+
+	/**
+	 * Copies the current state ids of all games into {@code out}.
+	 */
+	public void getStates(int[] out) {
+		System.arraycopy(states, 0, out, 0, states.length);
+	}
+
+	/**
+	 * @return the current {@link StateSpace} id of game {@code b}
+	 */
+	public int getState(int b) {
+		return states[b];
+	}
+
+	/**
+	 * @return the legal moves of game {@code b}, as a 9-bit mask of cells
+	 */
+	public int legalMoves(int b) {
+		return space.legalMoves[states[b]];
+	}
+
+	/**
+	 * Plays {@code actions[b]} as X in each game {@code b}, followed by the opponent's reply if the game is not over.
+	 * For each game, {@code rewards[b]} receives the reward, {@code nextStates[b]} the resulting state id (which is the
+	 * terminal state when the game ended) and {@code dones[b]} whether the game ended. Games that ended are then reset
+	 * to the empty board.
+	 *
+	 * @param actions the cell {@code 3*x+y} to play in each game
+	 * @throws IllegalMoveException if an action is not legal in its game. Games before it have been stepped, the rest not.
+	 */
+	public void step(int[] actions, double[] rewards, int[] nextStates, boolean[] dones) throws IllegalMoveException {
+		final int[] successors = space.successors;
+		final byte[] result = space.result;
+		final short[] legal = space.legalMoves;
+
+		for (int b = 0; b < states.length; b++) {
+			int a = actions[b];
+			if (a < 0 || a > 8 || (legal[states[b]] & (1 << a)) == 0)
+				throw new IllegalMoveException("Illegal Move:" + a + " in game " + b);
+
+			double r;
+			int next = successors[9 * states[b] + a];
+			if (result[next] == Game.X_WON) {
+				r = winReward;
+			} else if (result[next] == Game.DRAW) {
+				r = drawReward;
+			} else {
+				// the opponent's move, uniformly among the empty cells
+				int cells = legal[next];
+				for (int n = random.nextInt(Integer.bitCount(cells)); n > 0; n--)
+					cells &= cells - 1;
+				next = successors[9 * next + Integer.numberOfTrailingZeros(cells)];
+
+				if (result[next] == Game.O_WON)
+					r = loseReward;
+				else if (result[next] == Game.DRAW)
+					r = drawReward;
+				else
+					r = livingReward;
+			}
+
+			boolean done = result[next] != Game.ONGOING;
+			rewards[b] = r;
+			nextStates[b] = next;
+			dones[b] = done;
+			states[b] = done ? start : next;
+		}
+	}
+
+}
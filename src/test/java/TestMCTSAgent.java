@@ -0,0 +1,78 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ticTacToe.AggressiveAgent;
+import ticTacToe.DefensiveAgent;
+import ticTacToe.Game;
+import ticTacToe.GameRunner;
+import ticTacToe.MCTSAgent;
+import ticTacToe.MNKGame;
+import ticTacToe.MNKRules;
+import ticTacToe.RandomAgent;
+
+public class TestMCTSAgent {
+	@Test
+	public void testDefensive() {
+		System.out.println("Against Defensive Agent:");
+		int[] results=TestPolicyIterationAgent.playAgainstEachOther(new MCTSAgent(), new DefensiveAgent(), 50);
+		System.out.println("Wins: " + results[0] + " Losses: " + results[1] + " Draws: " + results[2]);
+		assertEquals(0, results[1]);
+		
+
+	}
+	
+	@Test
+	public void testAggressive() {
+		System.out.println("Against Aggressive Agent (root parallel):");
+		
+		int[] results=TestPolicyIterationAgent.playAgainstEachOther(new MCTSAgent(MCTSAgent.DEFAULT_PLAYOUTS, 0, 2, false), new AggressiveAgent(), 50);
+		System.out.println("Wins: " + results[0] + " Losses: " + results[1] + " Draws: " + results[2]);
+		assertEquals(0, results[1]);
+		
+
+	}
+
+	
+	@Test
+	public void testRandom() {
+		System.out.println("Against Random Agent (tree parallel):");
+		int[] results=TestPolicyIterationAgent.playAgainstEachOther(new MCTSAgent(MCTSAgent.DEFAULT_PLAYOUTS, 0, 2, true), new RandomAgent(), 50);
+		
+		System.out.println("Wins: " + results[0] + " Losses: " + results[1] + " Draws: " + results[2]);
+		assertEquals(0, results[1]);
+		
+
+	}
+
+	@Test
+	public void testMNKBoard() {
+		// 4 in a row on a 5x5 board, played to the end through the runner
+		MCTSAgent x=new MCTSAgent(2000, 0, 1, true);
+		MCTSAgent o=new MCTSAgent(2000, 0, 1, true);
+		GameRunner.Result r=new GameRunner().run(new MNKGame(MNKRules.of(5, 5, 4), x, o, x));
+		System.out.println("5x5, 4 in a row: "+r);
+		assertEquals(false, r.isForfeit());
+		assertEquals(true, r.getPlies()>=7);
+		
+	}
+
+	@Test
+	public void testThreadsAreShared() {
+		// agents made for every game, as a tournament does, don't each keep threads of their own
+		for (int i=0; i<50; i++) {
+			MCTSAgent x=new MCTSAgent(1000, 0, 4, true);
+			x.getMove(new Game(x, new DefensiveAgent()));
+		}
+		
+		int threads=0;
+		for (Thread t : Thread.getAllStackTraces().keySet())
+			if (t.getName().equals("mcts"))
+				threads++;
+		System.out.println(threads+" search threads after 50 agents");
+		// a few, depending on how soon finished threads are reused, rather than 4 per agent
+		assertEquals(true, threads<50);
+		
+	}
+
+}
@@ -0,0 +1,71 @@
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import ticTacToe.AggressiveAgent;
+import ticTacToe.DefensiveAgent;
+import ticTacToe.GameRunner;
+import ticTacToe.MNKGame;
+import ticTacToe.MNKRules;
+import ticTacToe.MinimaxAgent;
+import ticTacToe.RandomAgent;
+
+public class TestMinimaxAgent {
+	@Test
+	public void testDefensive() {
+		System.out.println("Against Defensive Agent:");
+		int[] results=TestPolicyIterationAgent.playAgainstEachOther(new MinimaxAgent(), new DefensiveAgent(), 50);
+		System.out.println("Wins: " + results[0] + " Losses: " + results[1] + " Draws: " + results[2]);
+		assertEquals(0, results[1]);
+		
+
+	}
+	
+	@Test
+	public void testAggressive() {
+		System.out.println("Against Aggressive Agent:");
+		
+		int[] results=TestPolicyIterationAgent.playAgainstEachOther(new MinimaxAgent(), new AggressiveAgent(), 50);
+		System.out.println("Wins: " + results[0] + " Losses: " + results[1] + " Draws: " + results[2]);
+		assertEquals(0, results[1]);
+		
+
+	}
+
+	
+	@Test
+	public void testRandom() {
+		System.out.println("Against Random Agent:");
+		int[] results=TestPolicyIterationAgent.playAgainstEachOther(new MinimaxAgent(), new RandomAgent(), 50);
+		
+		System.out.println("Wins: " + results[0] + " Losses: " + results[1] + " Draws: " + results[2]);
+		assertEquals(0, results[1]);
+		
+
+	}
+	
+	@Test
+	public void testItself() {
+		System.out.println("Against Minimax Agent:");
+		int[] results=TestPolicyIterationAgent.playAgainstEachOther(new MinimaxAgent(), new MinimaxAgent(), 20);
+		
+		System.out.println("Wins: " + results[0] + " Losses: " + results[1] + " Draws: " + results[2]);
+		assertEquals(20, results[2]);
+		
+
+	}
+
+	@Test
+	public void testMNKBoard() {
+		// 3 in a row on a 4x4 board is a win for X, which the search finds through the runner
+		MinimaxAgent x=new MinimaxAgent(0);
+		MinimaxAgent o=new MinimaxAgent(0);
+		GameRunner runner=new GameRunner();
+		runner.setRecordMoves(true);
+		GameRunner.Result r=runner.run(new MNKGame(MNKRules.of(4, 4, 3), x, o, x));
+		System.out.println("4x4, 3 in a row: "+r);
+		assertEquals(MNKGame.X_WON, r.getOutcome());
+		
+	}
+
+}
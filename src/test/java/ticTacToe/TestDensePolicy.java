@@ -0,0 +1,70 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+
+import org.junit.Test;
+
+public class TestDensePolicy {
+
+	static HashMap<Game, Move> optimalMoves() {
+		RetrogradeSolver solver=new RetrogradeSolver(new TTTMDP(), 0.9);
+		solver.solve();
+		return solver.getPolicyMap();
+	}
+
+	static void assertSameMoves(Policy expected, DensePolicy actual) {
+		StateSpace space=StateSpace.getInstance();
+		for (int id=0; id<space.size(); id++) {
+			Game g=space.game(id);
+			Move m=expected.getMove(g);
+			assertEquals(m, actual.getMove(g));
+			assertEquals(m==null ? -1 : 3*m.x+m.y, actual.cell(g.hashCode()));
+		}
+	}
+
+	@Test
+	public void testBytesMatchMapPolicy() {
+		HashMap<Game, Move> moves=optimalMoves();
+		assertSameMoves(new Policy(moves), new DensePolicy(moves, false));
+	}
+
+	@Test
+	public void testPackedMatchesMapPolicy() {
+		HashMap<Game, Move> moves=optimalMoves();
+		DensePolicy packed=new DensePolicy(moves, true);
+		assertEquals((StateSpace.NUM_HASHES+1)/2, packed.cells.length);
+		assertSameMoves(new Policy(moves), packed);
+	}
+
+	@Test
+	public void testPackedNeighboursDontOverwriteEachOther() {
+		DensePolicy packed=new DensePolicy('O', true);
+		for (int h=0; h<StateSpace.NUM_HASHES; h++)
+			packed.set(h, h%10-1);
+		for (int h=0; h<StateSpace.NUM_HASHES; h++)
+			assertEquals(h%10-1, packed.cell(h));
+
+		packed.set(1000, 4);
+		assertEquals(8, packed.cell(999));
+		assertEquals(4, packed.cell(1000));
+		assertEquals(0, packed.cell(1001));
+	}
+
+	@Test
+	public void testSharedMovesAreImmutable() {
+		Move m=Move.of('X', 5);
+		assertSame(m, Move.of('X', 5));
+		try {
+			m.who.setName('O');
+			fail("renamed the player of a shared move");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals('X', Move.of('X', 5).who.getName());
+	}
+
+}
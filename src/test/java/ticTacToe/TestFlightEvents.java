@@ -0,0 +1,73 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TestFlightEvents {
+
+	/**
+	 * Plays random games on the same board, reset after each game, so the moves all count towards its sampling.
+	 *
+	 * @return the number of moves executed
+	 */
+	static int playRandomGames(int moves) throws IllegalMoveException {
+		Random random=new Random(42);
+		MNKGame g=new MNKGame(MNKRules.of(3, 3, 3));
+		for (int i=0; i<moves; i++) {
+			if (g.isTerminal())
+				g.reset();
+			List<Move> possible=g.getPossibleMoves();
+			g.executeMove(possible.get(random.nextInt(possible.size())));
+		}
+		return moves;
+	}
+
+	@Test
+	public void testEventsAreRecorded() throws IOException, IllegalMoveException {
+		File file=File.createTempFile("ticTacToe", ".jfr");
+		try {
+			Recording recording=new Recording();
+			recording.enable("ticTacToe.Sweep").withThreshold(Duration.ZERO);
+			recording.enable("ticTacToe.MoveExecuted").withThreshold(Duration.ZERO);
+			recording.start();
+			ValueIterationAgent agent=ValueIterationAgent.untrained(0.9);
+			agent.train();
+			int moves=playRandomGames(5000);
+			recording.stop();
+			recording.dump(file.toPath());
+			recording.close();
+
+			int sweeps=0;
+			int executed=0;
+			for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+				String name=event.getEventType().getName();
+				if (name.equals("ticTacToe.Sweep")) {
+					assertEquals("value iteration", event.getString("algorithm"));
+					assertEquals(++sweeps, event.getInt("iteration"));
+				} else if (name.equals("ticTacToe.MoveExecuted")) {
+					assertTrue(event.getChar("player")=='X' || event.getChar("player")=='O');
+					executed++;
+				}
+			}
+			assertEquals(agent.getIterations(), sweeps);
+			// only one in SAMPLING moves is timed, and with no threshold all of those are recorded
+			assertTrue(executed>0);
+			assertEquals(moves/FlightEvents.SAMPLING, executed);
+		} finally {
+			file.delete();
+		}
+	}
+
+}
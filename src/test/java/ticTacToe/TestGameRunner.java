@@ -0,0 +1,144 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Test;
+
+public class TestGameRunner {
+
+	/**
+	 * An agent that plays the given cells in turn, on any board, and then has no move.
+	 */
+	static Agent scripted(final int... cells) {
+		return new Agent(new Policy() {
+			int next=0;
+
+			@Override
+			public Move getMove(Game g) {
+				return getMove((MNKGame) g);
+			}
+
+			@Override
+			public Move getMove(MNKGame g) {
+				if (next==cells.length)
+					return null;
+				int n=g.getRules().getColumns();
+				int c=cells[next++];
+				return new Move(g.getWhoseTurn().getName(), c/n, c%n);
+			}
+		});
+	}
+
+	@Test
+	public void testMovesArePacked() {
+		Game g=new Game(scripted(0, 1, 2), scripted(3, 4));
+		GameRunner runner=new GameRunner();
+		runner.setRecordMoves(true);
+		GameRunner.Result r=runner.run(g);
+
+		assertEquals(Game.X_WON, r.getOutcome());
+		assertEquals('X', r.getWinner());
+		assertEquals(5, r.getPlies());
+		assertNull(r.getError());
+		assertEquals(0x24130L, r.getMoves());
+		int[] cells={0, 3, 1, 4, 2};
+		for (int k=0; k<cells.length; k++)
+			assertEquals(cells[k], r.getMove(k));
+		try {
+			r.getMove(5);
+			fail("no move after the last one");
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+
+	@Test
+	public void testMovesAreNotPackedByDefault() {
+		GameRunner.Result r=new GameRunner().run(new Game(scripted(0, 1, 2), scripted(3, 4)));
+		assertEquals(5, r.getPlies());
+		assertEquals(0L, r.getMoves());
+	}
+
+	@Test
+	public void testIllegalMoveForfeitsX() {
+		// X plays the occupied corner again
+		GameRunner.Result r=new GameRunner().run(new Game(scripted(0, 0), scripted(4)));
+		assertEquals(GameRunner.FORFEIT_X, r.getOutcome());
+		assertTrue(r.isForfeit());
+		assertEquals('O', r.getWinner());
+		assertEquals(2, r.getPlies());
+		assertTrue(r.getError()!=null);
+	}
+
+	@Test
+	public void testMissingMoveForfeitsO() {
+		GameRunner.Result r=new GameRunner().run(new Game(scripted(0, 1), scripted(4)));
+		assertEquals(GameRunner.FORFEIT_O, r.getOutcome());
+		assertTrue(r.isForfeit());
+		assertEquals('X', r.getWinner());
+		assertEquals(3, r.getPlies());
+		assertTrue(r.getError()!=null);
+	}
+
+	@Test
+	public void testResultIsReset() {
+		GameRunner runner=new GameRunner();
+		runner.setRecordMoves(true);
+		runner.run(new Game(scripted(0, 0), scripted(4)));
+		GameRunner.Result r=runner.run(new Game(scripted(0, 1, 2), scripted(3, 4)));
+		assertEquals(Game.X_WON, r.getOutcome());
+		assertNull(r.getError());
+		assertEquals(0x24130L, r.getMoves());
+	}
+
+	@Test
+	public void testForfeitingMoveIsPrinted() {
+		ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+		GameRunner runner=new GameRunner(new PrintingListener(new PrintStream(bytes, true)));
+		runner.run(new Game(scripted(0, 0), scripted(4)));
+
+		String out=bytes.toString();
+		String forfeit="Playing move: "+Move.of('X', 0);
+		// once for the first move, and once for the second, which forfeits
+		assertTrue(out.indexOf(forfeit)>=0);
+		assertTrue(out.indexOf(forfeit)!=out.lastIndexOf(forfeit));
+	}
+
+	@Test
+	public void testMNKGame() {
+		// a 4x4 board with 3 in a row: X wins on the diagonal from cell 1, after moves to cells 1, 0, 6, 4, 11
+		MNKGame g=new MNKGame(MNKRules.of(4, 4, 3), scripted(1, 6, 11), scripted(0, 4), null);
+		GameRunner runner=new GameRunner();
+		runner.setRecordMoves(true);
+		GameRunner.Result r=runner.run(g);
+		assertEquals(MNKGame.X_WON, r.getOutcome());
+		assertEquals(0xB4601L, r.getMoves());
+	}
+
+	@Test
+	public void testTicTacToePolicyOnMNKGame() {
+		MNKGame g=new MNKGame(MNKRules.of(4, 4, 3), new RandomAgent(), new RandomAgent(), null);
+		try {
+			new GameRunner().run(g);
+			fail("a random agent only plays Tic Tac Toe");
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+
+	@Test
+	public void testMovesOfLargeBoardsAreNotRecorded() {
+		GameRunner runner=new GameRunner();
+		runner.setRecordMoves(true);
+		try {
+			runner.run(new MNKGame(MNKRules.of(5, 5, 4)));
+			fail("25 cells don't fit in the move log");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+}
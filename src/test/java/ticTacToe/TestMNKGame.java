@@ -0,0 +1,125 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestMNKGame {
+
+	/**
+	 * the directions of a line: along a row, a column, a diagonal and an anti-diagonal
+	 */
+	static final int[][] DIRECTIONS={{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+
+	/**
+	 * Plays {@code xCells} for X in order, with O on the first empty cells not in {@code xCells} in between, which
+	 * can't make a line of k with one piece less than X. Checks that X hasn't won before its last move.
+	 *
+	 * @return the state of the game after X's last move
+	 */
+	static int playX(MNKRules rules, int[] xCells) throws IllegalMoveException {
+		long reserved=0;
+		for (int c : xCells)
+			reserved|=1L<<c;
+
+		MNKGame g=new MNKGame(rules);
+		int n=rules.getColumns();
+		int filler=0;
+		for (int i=0; i<xCells.length; i++) {
+			if (i>0) {
+				while ((reserved>>>filler&1)!=0 || (g.emptyMask()>>>filler&1)==0)
+					filler++;
+				g.executeMove('O', filler/n, filler%n);
+			}
+			assertEquals(MNKGame.ONGOING, g.getState());
+			g.executeMove('X', xCells[i]/n, xCells[i]%n);
+		}
+		return g.getState();
+	}
+
+	/**
+	 * Checks that every line of k cells wins, with the winning move on each of its cells, and that k cells one step
+	 * apart in cell numbers that aren't a line, because they wrap around an edge of the board, don't.
+	 */
+	static void checkLines(int m, int n, int k) throws IllegalMoveException {
+		MNKRules rules=MNKRules.of(m, n, k);
+		int lines=0;
+		for (int[] d : DIRECTIONS)
+			for (int x=0; x<m; x++)
+				for (int y=0; y<n; y++) {
+					int[] cells=new int[k];
+					boolean onBoard=true;
+					for (int i=0; i<k; i++) {
+						int cx=x+i*d[0];
+						int cy=y+i*d[1];
+						onBoard&=rules.contains(cx, cy);
+						cells[i]=cx*n+cy;
+					}
+
+					if (onBoard) {
+						lines++;
+						for (int last=0; last<k; last++) {
+							int[] order=cells.clone();
+							order[last]=cells[k-1];
+							order[k-1]=cells[last];
+							assertEquals("line "+Arrays.toString(order), MNKGame.X_WON, playX(rules, order));
+						}
+					} else if (rules.contains(x, y) && cells[k-1]>=0 && cells[k-1]<m*n && d[1]!=0) {
+						// the same cell steps, wrapped around the left or right edge
+						assertTrue("not a line "+Arrays.toString(cells),
+								playX(rules, cells)!=MNKGame.X_WON);
+					}
+				}
+
+		assertEquals(rules.lines(), lines);
+	}
+
+	@Test
+	public void testLines4x4k3() throws IllegalMoveException {
+		checkLines(4, 4, 3);
+		assertEquals(24, MNKRules.of(4, 4, 3).lines());
+	}
+
+	@Test
+	public void testLines5x5k4() throws IllegalMoveException {
+		checkLines(5, 5, 4);
+		assertEquals(28, MNKRules.of(5, 5, 4).lines());
+	}
+
+	@Test
+	public void testAntiDiagonalWinByO() throws IllegalMoveException {
+		// O on the anti-diagonal next to the bottom right corner of a 5x5 board, k=4
+		MNKGame g=new MNKGame(MNKRules.of(5, 5, 4));
+		int[][] moves={{0, 0}, {1, 4}, {0, 1}, {2, 3}, {0, 2}, {3, 2}, {1, 0}, {4, 1}};
+		for (int i=0; i<moves.length; i++) {
+			assertEquals(MNKGame.ONGOING, g.getState());
+			g.executeMove(i%2==0 ? 'X' : 'O', moves[i][0], moves[i][1]);
+		}
+		assertEquals(MNKGame.O_WON, g.getState());
+	}
+
+	@Test
+	public void testDraw() throws IllegalMoveException {
+		// 4x4, k=3: rows of XXOO and OOXX alternate, so no three in a row in any direction
+		MNKGame g=new MNKGame(MNKRules.of(4, 4, 3));
+		String rows="XXOOOOXXXXOOOOXX";
+		int xs=0;
+		int os=0;
+		for (int i=0; i<16; i++) {
+			// find the next cell of the side to move
+			char who=i%2==0 ? 'X' : 'O';
+			int c=who=='X' ? rows.indexOf('X', xs) : rows.indexOf('O', os);
+			if (who=='X')
+				xs=c+1;
+			else
+				os=c+1;
+			assertEquals(MNKGame.ONGOING, g.getState());
+			g.executeMove(who, c/4, c%4);
+		}
+		assertEquals(MNKGame.DRAW, g.getState());
+	}
+
+}
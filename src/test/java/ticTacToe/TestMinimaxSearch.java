@@ -0,0 +1,49 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestMinimaxSearch {
+
+	/**
+	 * A 1x64 board with 20 in a row, where X has 12 in a row on cells 20 to 31 and O is spread out on both sides, far
+	 * from a win for either: 4 to the power of 11 for each of the lines through X's pieces is more than a win.
+	 */
+	static MNKGame longLine() throws IllegalMoveException {
+		MNKGame g=new MNKGame(MNKRules.of(1, 64, 20));
+		int[] o={0, 2, 4, 6, 8, 10, 53, 55, 57, 59, 61, 63};
+		for (int i=0; i<o.length; i++) {
+			g.executeMove('X', 0, 20+i);
+			g.executeMove('O', 0, o[i]);
+		}
+		return g;
+	}
+
+	@Test
+	public void testHeuristicIsNotAWin() throws IllegalMoveException {
+		MinimaxSearch search=new MinimaxSearch(1);
+		for (int depth=1; depth<=2; depth++) {
+			int move=search.search(longLine(), 0, depth);
+			assertTrue(move>=0);
+			assertEquals(depth, search.getDepth());
+			assertTrue("depth "+depth+": "+search.getScore(), !search.isSolved());
+			assertTrue(Math.abs(search.getScore())<MinimaxSearch.WIN_BOUND);
+		}
+		// X is still ahead
+		assertTrue(search.getScore()>0);
+	}
+
+	@Test
+	public void testWeightsDoNotOverflow() throws IllegalMoveException {
+		MinimaxSearch search=new MinimaxSearch(1);
+		search.search(new MNKGame(MNKRules.of(1, 64, 64)), 0, 1);
+		assertEquals(65, search.weights.length);
+		for (int c=2; c<search.weights.length; c++)
+			assertTrue(search.weights[c]>=search.weights[c-1]);
+		// the sum over the most lines any board has still fits in an int
+		assertTrue((long) 4*MNKRules.MAX_CELLS*search.weights[64]<Integer.MAX_VALUE);
+	}
+
+}
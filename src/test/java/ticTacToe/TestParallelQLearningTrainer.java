@@ -0,0 +1,86 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TestParallelQLearningTrainer {
+
+	static final double[] REWARDS=new TTTMDP().rewards();
+
+	/**
+	 * @return a q-table with the q-values of all moves of X set to 0
+	 */
+	static QTable newQTable() {
+		StateSpace space=StateSpace.getInstance();
+		QTable q=new QTable();
+		for (int s : space.ids('X'))
+			for (int moves=space.legalMoves(s); moves!=0; moves&=moves-1)
+				q.addQValue(s, Integer.numberOfTrailingZeros(moves), 0.0);
+		return q;
+	}
+
+	/**
+	 * @return the exact value, from the empty board, of the greedy policy learned in {@code episodes} episodes
+	 */
+	static double train(int threads, long episodes, RetrogradeSolver solver) {
+		QTable q=newQTable();
+		ParallelQLearningTrainer trainer=new ParallelQLearningTrainer(q, 0.1, 0.9, 0.1, REWARDS, threads, 42);
+		trainer.train(episodes);
+		assertEquals(episodes, trainer.getEpisodes());
+
+		int start=StateSpace.getInstance().id(new Game().hashCode());
+		return solver.evaluate(q.greedyRows(new TTTMDP().compile())).get(start);
+	}
+
+	@Test
+	public void testParallelPolicyMatchesSingleThreaded() {
+		RetrogradeSolver solver=new RetrogradeSolver(new TTTMDP(), 0.9);
+		solver.solve();
+		double optimal=solver.getValues().get(StateSpace.getInstance().id(new Game().hashCode()));
+
+		// an untrained policy is worth about -2.8 against the random opponent, the optimal one about 5.9
+		double single=train(1, 200000, solver);
+		for (int threads=2; threads<=4; threads*=2) {
+			double parallel=train(threads, 200000, solver);
+			assertEquals(threads+" threads", single, parallel, 0.3);
+			assertEquals(threads+" threads", optimal, parallel, 0.3);
+		}
+	}
+
+	@Test
+	public void testWorkerFailureIsRethrown() {
+		ParallelQLearningTrainer trainer=new ParallelQLearningTrainer(newQTable(), 0.1, 0.9, 0.1, REWARDS, 2, 42);
+		final RuntimeException failure=new RuntimeException("listener failed");
+		trainer.setTrainingListener(new TrainingListener() {
+			@Override
+			public void episodes(long episodes, double episodesPerSecond, double meanTdError, double epsilon,
+					long allocatedBytes) {
+				throw failure;
+			}
+		}, 10);
+		try {
+			trainer.train(100);
+			fail("train() should have thrown");
+		} catch (IllegalStateException e) {
+			// both workers fail: one is the cause, the other suppressed
+			assertTrue(e.getCause()==failure);
+			assertEquals(1, e.getSuppressed().length);
+		}
+		assertEquals(0L, trainer.getEpisodes());
+	}
+
+	@Test
+	public void testRewardsAreChecked() {
+		for (int n : new int[] {0, 3, 5}) {
+			try {
+				new ParallelQLearningTrainer(newQTable(), 0.1, 0.9, 0.1, new double[n], 2, 42);
+				fail(n+" rewards");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+}
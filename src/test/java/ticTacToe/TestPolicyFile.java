@@ -0,0 +1,102 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+public class TestPolicyFile {
+
+	static HashMap<Game, Move> optimalMoves() {
+		RetrogradeSolver solver=new RetrogradeSolver(new TTTMDP(), 0.9);
+		solver.solve();
+		return solver.getPolicyMap();
+	}
+
+	static Path tempFile() throws IOException {
+		Path file=Files.createTempFile("test", ".policy");
+		file.toFile().deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		HashMap<Game, Move> moves=optimalMoves();
+		Policy policy=new Policy(moves);
+		Path file=tempFile();
+		policy.save(file.toString());
+		assertEquals((long) Policy.HEADER_SIZE+StateSpace.NUM_HASHES, Files.size(file));
+
+		Policy loaded=new Policy(file.toString());
+		StateSpace space=StateSpace.getInstance();
+		for (int id=0; id<space.size(); id++) {
+			Game g=space.game(id);
+			assertEquals(policy.getMove(g), loaded.getMove(g));
+		}
+
+		// and again from the loaded policy, byte for byte
+		Path copy=tempFile();
+		loaded.save(copy.toString());
+		assertTrue(Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(copy)));
+	}
+
+	/**
+	 * Saves a policy, adds {@code delta} to byte {@code offset} of the file, and checks that loading it is rejected.
+	 */
+	static void assertRejected(int offset, int delta) throws IOException {
+		Path file=tempFile();
+		new Policy(optimalMoves()).save(file.toString());
+		byte[] bytes=Files.readAllBytes(file);
+		bytes[offset]+=delta;
+		Files.write(file, bytes);
+		try {
+			new Policy(file.toString());
+			fail("Loaded a policy file corrupted at byte "+offset);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBadMagic() throws IOException {
+		assertRejected(0, 1);
+	}
+
+	@Test
+	public void testBadVersion() throws IOException {
+		assertRejected(5, 1);
+	}
+
+	@Test
+	public void testBadCount() throws IOException {
+		assertRejected(11, -1);
+	}
+
+	@Test
+	public void testBadChecksum() throws IOException {
+		// a move byte of the body, which doesn't match the CRC anymore
+		assertRejected(Policy.HEADER_SIZE+new Game().hashCode(), 1);
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		Path file=tempFile();
+		new Policy(optimalMoves()).save(file.toString());
+		byte[] bytes=Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length-1));
+		try {
+			new Policy(file.toString());
+			fail("Loaded a truncated policy file");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class TestReplayBuffer {
+
+	@Test
+	public void testRingOverwritesTheOldest() {
+		ReplayBuffer buffer=new ReplayBuffer(3);
+		for (int t=0; t<5; t++)
+			buffer.add(t, t, t, 10+t, t%2==0);
+
+		assertEquals(3, buffer.size());
+		// transitions 3 and 4 overwrote 0 and 1
+		int[] expected={ 3, 4, 2 };
+		for (int slot=0; slot<3; slot++) {
+			int t=expected[slot];
+			assertEquals(t, buffer.state(slot));
+			assertEquals(t, buffer.action(slot));
+			assertEquals(t, buffer.reward(slot), 0.0);
+			assertEquals(10+t, buffer.nextState(slot));
+			assertEquals(t%2==0, buffer.done(slot));
+		}
+	}
+
+	@Test
+	public void testUniformSamplingOnlyReturnsStoredSlots() {
+		ReplayBuffer buffer=new ReplayBuffer(10);
+		for (int t=0; t<4; t++)
+			buffer.add(t, 0, 0.0, 0, false);
+
+		int[] slots=new int[1000];
+		double[] weights=new double[1000];
+		buffer.sample(1000, new SplittableRandom(42), 0.4, slots, weights);
+		int[] counts=new int[10];
+		for (int k=0; k<1000; k++) {
+			counts[slots[k]]++;
+			assertEquals(1.0, weights[k], 0.0);
+		}
+		for (int slot=0; slot<10; slot++)
+			assertTrue(slot<4 ? counts[slot]>0 : counts[slot]==0);
+	}
+
+	/**
+	 * Checks that every inner node of the sum tree is the sum of its children, and the root the sum of the leaves.
+	 */
+	static void assertSums(ReplayBuffer buffer) {
+		double leaves=0.0;
+		for (int i=0; i<buffer.capacity; i++)
+			leaves+=buffer.tree[buffer.capacity+i];
+		assertEquals(leaves, buffer.tree[1], 1e-9);
+		for (int j=1; j<buffer.capacity; j++)
+			assertEquals(buffer.tree[2*j]+buffer.tree[2*j+1], buffer.tree[j], 1e-9);
+	}
+
+	@Test
+	public void testSumTreeTotals() {
+		for (int capacity : new int[] { 1, 5, 7, 8, 100 }) {
+			ReplayBuffer buffer=new ReplayBuffer(capacity, true, 0.6);
+			for (int t=0; t<2*capacity+3; t++) {
+				buffer.add(t, 0, 0.0, 0, false);
+				buffer.updatePriority(t%capacity, (t*7)%11);
+				assertSums(buffer);
+			}
+		}
+	}
+
+	@Test
+	public void testPrioritizedSamplingWithNonPowerOfTwoCapacity() {
+		ReplayBuffer buffer=new ReplayBuffer(3, true, 1.0);
+		for (int t=0; t<3; t++)
+			buffer.add(t, 0, 0.0, 0, false);
+		buffer.updatePriority(0, 1.0);
+		buffer.updatePriority(1, 2.0);
+		buffer.updatePriority(2, 7.0);
+		assertEquals(10.0, buffer.tree[1], 1e-12);
+
+		int n=100000;
+		int[] slots=new int[n];
+		double[] weights=new double[n];
+		buffer.sample(n, new SplittableRandom(42), 1.0, slots, weights);
+		int[] counts=new int[3];
+		double maxWeight=0.0;
+		for (int k=0; k<n; k++) {
+			counts[slots[k]]++;
+			maxWeight=Math.max(maxWeight, weights[k]);
+		}
+
+		assertEquals(0.1, counts[0]/(double) n, 0.01);
+		assertEquals(0.2, counts[1]/(double) n, 0.01);
+		assertEquals(0.7, counts[2]/(double) n, 0.01);
+		// the weights are (size*P)^-beta over the largest, which is that of the least likely slot
+		assertEquals(1.0, maxWeight, 0.0);
+		double[] p={ 0.1, 0.2, 0.7 };
+		for (int k=0; k<n; k++)
+			assertEquals(p[0]/p[slots[k]], weights[k], 1e-9);
+	}
+
+}
@@ -0,0 +1,84 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestSymmetry {
+
+	static final StateSpace space=StateSpace.getInstance();
+	static final Symmetry symmetry=Symmetry.getInstance();
+
+	/**
+	 * @return the id of the image of state {@code id} under symmetry {@code t}
+	 */
+	static int image(int t, int id) {
+		int x=Symmetry.apply(t, space.xBits[id]);
+		int o=Symmetry.apply(t, space.oBits[id]);
+		int h=space.toMove[id]+1;
+		for (int c=0; c<9; c++)
+			h+=((x>>c)&1)*Game.POW3[c]+2*((o>>c)&1)*Game.POW3[c];
+
+		return space.id(h);
+	}
+
+	@Test
+	public void testTransformsArePermutationsWithInverses() {
+		Set<String> distinct=new HashSet<String>();
+		for (int t=0; t<Symmetry.COUNT; t++) {
+			int cells=0;
+			StringBuilder sb=new StringBuilder();
+			for (int c=0; c<9; c++) {
+				cells|=1<<Symmetry.CELLS[t][c];
+				sb.append(Symmetry.CELLS[t][c]);
+				assertEquals(c, (int) Symmetry.CELLS[Symmetry.INVERSE[t]][Symmetry.CELLS[t][c]]);
+				assertEquals(c, (int) Symmetry.CELLS[t][Symmetry.CELLS[Symmetry.INVERSE[t]][c]]);
+			}
+			assertEquals(Game.FULL, cells);
+			distinct.add(sb.toString());
+
+			// lines are mapped to lines
+			for (int line : Game.LINES) {
+				boolean found=false;
+				for (int other : Game.LINES)
+					found|=Symmetry.apply(t, line)==other;
+				assertTrue(found);
+			}
+		}
+
+		assertEquals(Symmetry.COUNT, distinct.size());
+		for (int c=0; c<9; c++)
+			assertEquals(c, (int) Symmetry.CELLS[0][c]);
+	}
+
+	@Test
+	public void testClassesAreTheSameForAllImages() {
+		for (int id=0; id<space.size(); id++) {
+			int canonical=symmetry.canonical(id);
+			assertEquals(canonical, image(symmetry.transform(id), id));
+			assertEquals(canonical, symmetry.canonical(space.game(id)));
+			for (int t=0; t<Symmetry.COUNT; t++) {
+				int image=image(t, id);
+				assertTrue(image>=0);
+				assertTrue(canonical<=image);
+				assertEquals(canonical, symmetry.canonical(image));
+				assertEquals(symmetry.classOf(id), symmetry.classOf(image));
+				assertEquals(space.pieces(id), space.pieces(image));
+				assertEquals(space.whoseTurn(id), space.whoseTurn(image));
+			}
+
+			for (int c=0; c<9; c++) {
+				assertEquals(c, symmetry.fromCanonical(id, symmetry.toCanonical(id, c)));
+				assertEquals(c, symmetry.toCanonical(id, symmetry.fromCanonical(id, c)));
+			}
+		}
+
+		for (int k=0; k<symmetry.classes(); k++)
+			assertEquals(k, symmetry.classOf(symmetry.representatives[k]));
+	}
+
+}
@@ -0,0 +1,54 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestTournament {
+
+	/**
+	 * An agent that always plays the top left cell, so it forfeits its second move, or its first as O.
+	 */
+	static Agent corner() {
+		return new Agent(new Policy() {
+			@Override
+			public Move getMove(Game g) {
+				return Move.of(g.getWhoseTurn().getName(), 0);
+			}
+		});
+	}
+
+	@Test
+	public void testCountsAddUpToGamesPlayed() {
+		// not a multiple of the batch size, so that the last batch of each pairing is a short one
+		long games=Tournament.BATCH+234;
+		Tournament t=new Tournament(games);
+		t.add("random", RandomAgent::new);
+		t.add("defensive", DefensiveAgent::new);
+		t.add("corner", TestTournament::corner);
+		Tournament.Results results=t.run(2);
+
+		int n=results.getNames().length;
+		assertEquals(3, n);
+		assertEquals(n*(n-1)*games, results.games());
+		for (int i=0; i<n; i++)
+			for (int j=0; j<n; j++) {
+				if (i==j)
+					continue;
+				long[] asX=results.asX(i, j);
+				assertEquals(games, asX[0]+asX[1]+asX[2]);
+				assertEquals(2*games, results.wins(i, j)+results.losses(i, j)+results.draws(i, j));
+				assertEquals(results.wins(i, j), results.losses(j, i));
+				assertEquals(results.draws(i, j), results.draws(j, i));
+				assertEquals(results.forfeits(i, j), results.forfeits(j, i));
+			}
+
+		// the corner agent forfeits every game, and loses all of them
+		for (int i=0; i<2; i++) {
+			assertEquals(2*games, results.forfeits(i, 2));
+			assertEquals(2*games, results.wins(i, 2));
+		}
+		assertEquals(0L, results.forfeits(0, 1));
+	}
+
+}
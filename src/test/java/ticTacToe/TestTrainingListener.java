@@ -0,0 +1,89 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestTrainingListener {
+
+	@Test
+	public void testValueIterationReportsEverySweep() {
+		final List<Double> residuals=new ArrayList<Double>();
+		final List<Integer> iterations=new ArrayList<Integer>();
+		ValueIterationAgent agent=ValueIterationAgent.untrained(0.9);
+		assertNull(agent.getPolicy());
+		double epsilon=1e-6;
+		agent.setEpsilon(epsilon);
+		agent.setTrainingListener(new TrainingListener() {
+			@Override
+			public void sweep(int iteration, double residual, long nanos, long allocatedBytes) {
+				iterations.add(iteration);
+				residuals.add(residual);
+			}
+		});
+		agent.train();
+
+		int n=iterations.size();
+		assertTrue(n>1);
+		for (int i=0; i<n; i++)
+			assertEquals(i+1, (int) iterations.get(i));
+		for (int i=0; i<n-1; i++)
+			assertTrue(residuals.get(i)>=epsilon);
+		assertTrue(residuals.get(n-1)<=epsilon);
+		assertEquals(n, agent.getIterations());
+	}
+
+	@Test
+	public void testPolicyIterationReportsEveryStep() {
+		final List<Integer> changed=new ArrayList<Integer>();
+		final List<Integer> iterations=new ArrayList<Integer>();
+		PolicyIterationAgent agent=PolicyIterationAgent.untrained(0.9);
+		assertNull(agent.getPolicy());
+		agent.setTrainingListener(new TrainingListener() {
+			@Override
+			public void policyIteration(int iteration, int evaluationSweeps, int changedActions, long nanos,
+					long allocatedBytes) {
+				assertTrue(evaluationSweeps>0);
+				iterations.add(iteration);
+				changed.add(changedActions);
+			}
+		});
+		agent.train();
+
+		int n=iterations.size();
+		assertTrue(n>1);
+		for (int i=0; i<n; i++)
+			assertEquals(i+1, (int) iterations.get(i));
+		// the policy changes at every step until the last, which finds nothing to improve
+		for (int i=0; i<n-1; i++)
+			assertTrue(changed.get(i)>0);
+		assertEquals(0, (int) changed.get(n-1));
+	}
+
+	@Test
+	public void testQLearningReportsEveryInterval() {
+		final List<Long> episodes=new ArrayList<Long>();
+		QLearningAgent agent=QLearningAgent.untrained(new RandomAgent(), 0.1, 10000, 0.9, 1);
+		assertNull(agent.getPolicy());
+		agent.setTrainingListener(new TrainingListener() {
+			@Override
+			public void episodes(long total, double episodesPerSecond, double meanTdError, double epsilon,
+					long allocatedBytes) {
+				assertTrue(meanTdError>=0);
+				episodes.add(total);
+			}
+		}, 1000);
+		agent.train();
+
+		assertEquals(10, episodes.size());
+		for (int i=0; i<10; i++)
+			assertEquals(1000L*(i+1), (long) episodes.get(i));
+		assertTrue(agent.getPolicy()!=null);
+	}
+
+}
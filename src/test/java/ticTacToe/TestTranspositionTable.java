@@ -0,0 +1,123 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TestTranspositionTable {
+
+	/**
+	 * keys of positions in the same bucket: they only differ above the bucket bits
+	 */
+	static final long A=12345L;
+	static final long B=A|1L<<40;
+	static final long C=A|2L<<40;
+	static final long D=A|3L<<40;
+
+	@Test
+	public void testEntryRoundTrip() {
+		TranspositionTable t=new TranspositionTable(1);
+		t.store(A, -(MinimaxSearch.WIN-3), 255, TranspositionTable.LOWER, 254);
+		t.store(B, 7, 0, TranspositionTable.UPPER, -1);
+
+		long a=t.probe(A);
+		assertEquals(-(MinimaxSearch.WIN-3), TranspositionTable.score(a));
+		assertEquals(255, TranspositionTable.depth(a));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(a));
+		assertEquals(254, TranspositionTable.move(a));
+
+		long b=t.probe(B);
+		assertEquals(7, TranspositionTable.score(b));
+		assertEquals(0, TranspositionTable.depth(b));
+		assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(b));
+		assertEquals(-1, TranspositionTable.move(b));
+	}
+
+	@Test
+	public void testCounters() {
+		TranspositionTable t=new TranspositionTable(1);
+		assertEquals(TranspositionTable.MISS, t.probe(A));
+		assertEquals(1L, t.getMisses());
+		assertEquals(0L, t.getCollisions());
+
+		t.store(A, 1, 3, TranspositionTable.EXACT, 0);
+		t.probe(A);
+		t.probe(B); // same bucket, other position
+		t.probe(A^1); // another, empty bucket
+		assertEquals(4L, t.getProbes());
+		assertEquals(1L, t.getHits());
+		assertEquals(3L, t.getMisses());
+		assertEquals(1L, t.getCollisions());
+		assertEquals(1L, t.getStores());
+		assertEquals(0L, t.getOverwrites());
+		assertEquals(0.25, t.getHitRate(), 0.0);
+
+		t.clear();
+		assertEquals(0L, t.getProbes());
+		assertEquals(0L, t.getStores());
+		assertEquals(TranspositionTable.MISS, t.probe(A));
+	}
+
+	@Test
+	public void testReplacement() {
+		TranspositionTable t=new TranspositionTable(1);
+		t.store(A, 1, 5, TranspositionTable.EXACT, 1);
+		// shallower: goes to the always-replace entry
+		t.store(B, 2, 2, TranspositionTable.EXACT, 2);
+		assertEquals(5, TranspositionTable.depth(t.probe(A)));
+		assertEquals(2, TranspositionTable.depth(t.probe(B)));
+		assertEquals(0L, t.getOverwrites());
+
+		// shallower again: replaces B, not A
+		t.store(C, 3, 1, TranspositionTable.EXACT, 3);
+		assertEquals(5, TranspositionTable.depth(t.probe(A)));
+		assertEquals(TranspositionTable.MISS, t.probe(B));
+		assertEquals(1, TranspositionTable.depth(t.probe(C)));
+		assertEquals(1L, t.getOverwrites());
+
+		// deeper: takes the depth-preferred entry, and A is demoted over C
+		t.store(D, 4, 6, TranspositionTable.EXACT, 4);
+		assertEquals(6, TranspositionTable.depth(t.probe(D)));
+		assertEquals(5, TranspositionTable.depth(t.probe(A)));
+		assertEquals(TranspositionTable.MISS, t.probe(C));
+		assertEquals(2L, t.getOverwrites());
+
+		// the same position always replaces its own entry, however shallow
+		t.store(D, 5, 0, TranspositionTable.EXACT, 5);
+		assertEquals(0, TranspositionTable.depth(t.probe(D)));
+		assertEquals(5, TranspositionTable.depth(t.probe(A)));
+		assertEquals(2L, t.getOverwrites());
+		assertEquals(5L, t.getStores());
+	}
+
+	@Test
+	public void testNewSearchReplacesOlderEntries() {
+		TranspositionTable t=new TranspositionTable(1);
+		t.store(A, 1, 5, TranspositionTable.EXACT, 1);
+		t.newSearch();
+		// shallower, but from a newer search: takes the depth-preferred entry, and A is demoted
+		t.store(B, 2, 1, TranspositionTable.EXACT, 2);
+		t.store(C, 3, 0, TranspositionTable.EXACT, 3);
+		assertEquals(1, TranspositionTable.depth(t.probe(B)));
+		assertEquals(0, TranspositionTable.depth(t.probe(C)));
+		assertEquals(TranspositionTable.MISS, t.probe(A));
+		assertEquals(1L, t.getOverwrites());
+	}
+
+	@Test
+	public void testInvalidStores() {
+		TranspositionTable t=new TranspositionTable(1);
+		int[][] invalid={{-1, TranspositionTable.EXACT, 0}, {256, TranspositionTable.EXACT, 0}, {0, 0, 0},
+				{0, TranspositionTable.UPPER+1, 0}, {0, TranspositionTable.EXACT, -2}, {0, TranspositionTable.EXACT, 255}};
+		for (int[] args : invalid) {
+			try {
+				t.store(A, 0, args[0], args[1], args[2]);
+				fail("depth "+args[0]+", bound "+args[1]+", move "+args[2]);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+		assertEquals(0L, t.getStores());
+	}
+
+}
@@ -0,0 +1,54 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestValueIterationAgent {
+
+	static ValueIterationAgent train(int parallelism) {
+		ValueIterationAgent agent=ValueIterationAgent.untrained(0.9);
+		agent.setParallelism(parallelism);
+		agent.train();
+		return agent;
+	}
+
+	@Test
+	public void testParallelSweepsAreBitIdentical() {
+		double[] expected=train(1).values.values;
+		for (int threads : new int[] { 2, 4, 8 })
+			assertTrue(threads+" threads", Arrays.equals(expected, train(threads).values.values));
+	}
+
+	@Test
+	public void testRetrogradeEqualsValueIteration() {
+		ValueIterationAgent iterative=ValueIterationAgent.untrained(0.9);
+		iterative.setEpsilon(1e-15);
+		iterative.train();
+		ValueIterationAgent retrograde=ValueIterationAgent.untrained(0.9);
+		retrograde.setTrainingMode(TrainingMode.RETROGRADE);
+		retrograde.train();
+
+		assertTrue(iterative.getResidual()<1e-15);
+		for (int s : iterative.values.domain())
+			assertEquals(iterative.values.get(s), retrograde.values.get(s), 0.0);
+	}
+
+	@Test
+	public void testSymmetricEqualsFullSolve() {
+		ValueIterationAgent full=ValueIterationAgent.untrained(0.9);
+		full.setEpsilon(1e-15);
+		full.train();
+		ValueIterationAgent symmetric=ValueIterationAgent.untrained(0.9);
+		symmetric.setEpsilon(1e-15);
+		symmetric.setSymmetric(true);
+		symmetric.train();
+
+		for (int s : full.values.domain())
+			assertEquals(full.values.get(s), symmetric.values.get(s), 4e-15);
+	}
+
+}
@@ -0,0 +1,115 @@
+package ticTacToe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+public class TestVectorizedTTTEnvironment {
+
+	static final int START=StateSpace.getInstance().id(new Game().hashCode());
+
+	/**
+	 * Picks a random legal action in each game.
+	 */
+	static void randomActions(VectorizedTTTEnvironment env, SplittableRandom random, int[] actions) {
+		for (int b=0; b<env.size(); b++) {
+			int cells=env.legalMoves(b);
+			for (int n=random.nextInt(Integer.bitCount(cells)); n>0; n--)
+				cells&=cells-1;
+			actions[b]=Integer.numberOfTrailingZeros(cells);
+		}
+	}
+
+	@Test
+	public void testFinishedGamesAreReset() throws IllegalMoveException {
+		StateSpace space=StateSpace.getInstance();
+		int size=64;
+		VectorizedTTTEnvironment env=new VectorizedTTTEnvironment(size, 42);
+		for (int b=0; b<size; b++)
+			assertEquals(START, env.getState(b));
+
+		SplittableRandom random=new SplittableRandom(1);
+		int[] actions=new int[size];
+		double[] rewards=new double[size];
+		int[] next=new int[size];
+		boolean[] dones=new boolean[size];
+		int finished=0;
+		for (int step=0; step<100; step++) {
+			randomActions(env, random, actions);
+			env.step(actions, rewards, next, dones);
+			for (int b=0; b<size; b++) {
+				int result=space.result(next[b]);
+				assertEquals(dones[b], result!=Game.ONGOING);
+				if (dones[b]) {
+					// the terminal state is reported, and the game starts again
+					finished++;
+					assertEquals(START, env.getState(b));
+					assertEquals(result==Game.X_WON ? 10.0 : result==Game.O_WON ? -50.0 : 0.0, rewards[b], 0.0);
+				} else {
+					assertEquals(next[b], env.getState(b));
+					assertEquals(-1.0, rewards[b], 0.0);
+					// X's move and O's reply: X is to move again
+					assertEquals('X', space.whoseTurn(env.getState(b)));
+				}
+			}
+		}
+		assertTrue(finished>size);
+	}
+
+	@Test
+	public void testIllegalActions() throws IllegalMoveException {
+		VectorizedTTTEnvironment env=new VectorizedTTTEnvironment(2, 42);
+		int[] actions={4, 4};
+		double[] rewards=new double[2];
+		int[] next=new int[2];
+		boolean[] dones=new boolean[2];
+		env.step(actions, rewards, next, dones);
+		int[] before={env.getState(0), env.getState(1)};
+
+		// the centre is now taken in game 1; game 0 plays a legal move first
+		int free=Integer.numberOfTrailingZeros(env.legalMoves(0));
+		for (int[] illegal : new int[][] {{free, 4}, {free, -1}, {free, 9}}) {
+			VectorizedTTTEnvironment copy=new VectorizedTTTEnvironment(2, 42);
+			copy.step(actions, rewards, next, dones);
+			try {
+				copy.step(illegal, rewards, next, dones);
+				fail("action "+illegal[1]);
+			} catch (IllegalMoveException e) {
+			}
+			assertTrue(copy.getState(0)!=before[0]);
+			assertEquals(before[1], copy.getState(1));
+		}
+	}
+
+	@Test
+	public void testRandomPlayWinRate() throws IllegalMoveException {
+		// random X against random O: X wins 737/1260 of the games, about 0.585
+		int size=1024;
+		VectorizedTTTEnvironment env=new VectorizedTTTEnvironment(size, 42);
+		SplittableRandom random=new SplittableRandom(7);
+		int[] actions=new int[size];
+		double[] rewards=new double[size];
+		int[] next=new int[size];
+		boolean[] dones=new boolean[size];
+		long games=0;
+		long xWins=0;
+		for (int step=0; step<500; step++) {
+			randomActions(env, random, actions);
+			env.step(actions, rewards, next, dones);
+			for (int b=0; b<size; b++) {
+				if (dones[b]) {
+					games++;
+					if (rewards[b]==10.0)
+						xWins++;
+				}
+			}
+		}
+		assertTrue(games>100000);
+		assertEquals(737.0/1260, (double) xWins/games, 0.01);
+	}
+
+}